@@ -0,0 +1,66 @@
+package deltix.luminary;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allows to stop loading projects either on request or when the deadline expires. The loader checks the token between
+ * source files, between phases of the analysis and periodically while parsing a source file, and stops with
+ * {@link CancellationException} as soon as the token is cancelled.
+ */
+public final class CancellationToken {
+    /**
+     * Token that is never cancelled.
+     */
+    public static final CancellationToken NONE = new CancellationToken(false, 0);
+
+    private final boolean hasDeadline;
+    private final long deadline;
+    private volatile boolean isCancelled = false;
+
+    /**
+     * Initializes the new instance of @see CancellationToken that is cancelled only by {@link #cancel()}.
+     */
+    public CancellationToken() {
+        this(false, 0);
+    }
+
+    private CancellationToken(boolean hasDeadline, long deadline) {
+        this.hasDeadline = hasDeadline;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Creates the token that is cancelled when the given time elapses.
+     *
+     * @param timeout Time after which the token is cancelled.
+     * @param unit    Unit of the timeout.
+     * @return New token.
+     */
+    @NotNull
+    public static CancellationToken withTimeout(long timeout, @NotNull TimeUnit unit) {
+        return new CancellationToken(true, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    public void cancel() {
+        if (this == NONE)
+            throw new UnsupportedOperationException("Token that is never cancelled cannot be cancelled.");
+        isCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return isCancelled || hasDeadline && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Throws {@link CancellationException} if the token is cancelled.
+     *
+     * @throws CancellationException if the token is cancelled.
+     */
+    public void throwIfCancelled() {
+        if (isCancelled())
+            throw new CancellationException(isCancelled ? "Loading has been cancelled." : "Loading has timed out.");
+    }
+}
@@ -4,7 +4,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents the definition of a class in Luminary.
@@ -81,4 +83,14 @@ public class ClassDef extends ClassOrInterfaceDef<ClassPropertyDef, TypeClass> i
     public List<ConstantDef> getDefinedConstants() {
         return definedConstants;
     }
+
+    @Override
+    Map<String, ClassPropertyDef> collectAllProperties() {
+        final Map<String, ClassPropertyDef> properties = new LinkedHashMap<>();
+        if (superClass != null)
+            properties.putAll(superClass.getAllProperties());
+        for (ClassPropertyDef propertyDef : getProperties())
+            properties.put(propertyDef.getName(), propertyDef);
+        return properties;
+    }
 }
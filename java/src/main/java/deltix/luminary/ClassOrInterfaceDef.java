@@ -4,10 +4,14 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class ClassOrInterfaceDef<TProperty extends PropertyDef<? extends ClassOrInterfaceDef>, TType extends Type> extends CompositeTypeScope<TProperty, TType> implements TypeScope {
     private final List<InterfaceDef> superInterfaces = new ArrayList<>();
+    private volatile Map<String, TProperty> allProperties = null;
 
     public ClassOrInterfaceDef(@NotNull TypeScope parent, @NotNull String name, @Nullable List<String> comments) {
         super(parent, name, comments);
@@ -22,4 +26,40 @@ public abstract class ClassOrInterfaceDef<TProperty extends PropertyDef<? extend
     public List<InterfaceDef> getSuperInterfaces() {
         return superInterfaces;
     }
+
+    /**
+     * Properties of this class or interface together with the inherited ones by their names. Properties that
+     * override inherited ones take their places. The map is computed once and shared with derived types.
+     *
+     * @return Map of all properties.
+     */
+    @NotNull
+    public Map<String, TProperty> getAllProperties() {
+        Map<String, TProperty> properties = allProperties;
+        if (properties == null) {
+            properties = Collections.unmodifiableMap(collectAllProperties());
+            allProperties = properties;
+        }
+        return properties;
+    }
+
+    @Nullable
+    Map<String, TProperty> tryGetAllProperties() {
+        return allProperties;
+    }
+
+    void setAllProperties(@NotNull Map<String, TProperty> properties) {
+        allProperties = Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * Collects all properties without checking inheritance, which is done by {@link ProjectLoader}. Classes and
+     * interfaces add inherited properties to the own ones.
+     */
+    Map<String, TProperty> collectAllProperties() {
+        final Map<String, TProperty> properties = new LinkedHashMap<>();
+        for (TProperty propertyDef : getProperties())
+            properties.put(propertyDef.getName(), propertyDef);
+        return properties;
+    }
 }
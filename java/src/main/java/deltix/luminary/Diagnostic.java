@@ -0,0 +1,68 @@
+package deltix.luminary;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Describes the problem found within the source file.
+ */
+public final class Diagnostic {
+    private final Location location;
+    private final int line;
+    private final int column;
+    private final DiagnosticCode code;
+    private final String message;
+
+    public Diagnostic(@NotNull Location location, int line, int column, @NotNull DiagnosticCode code, @NotNull String message) {
+        this.location = location;
+        this.line = line;
+        this.column = column;
+        this.code = code;
+        this.message = message;
+    }
+
+    /**
+     * Source file that contains the problem.
+     *
+     * @return Location of the source file.
+     */
+    @NotNull
+    public Location getLocation() {
+        return location;
+    }
+
+    /**
+     * Line of the problem starting from 1, or 0 if the position of the problem is unknown.
+     *
+     * @return Line of the problem.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Column of the problem starting from 1, or 0 if the position of the problem is unknown.
+     *
+     * @return Column of the problem.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    @NotNull
+    public DiagnosticCode getCode() {
+        return code;
+    }
+
+    @NotNull
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(location.toString());
+        if (line > 0)
+            builder.append('(').append(line).append(',').append(column).append(')');
+        return builder.append(": ").append(code).append(": ").append(message).toString();
+    }
+}
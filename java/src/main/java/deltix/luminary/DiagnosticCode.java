@@ -0,0 +1,28 @@
+package deltix.luminary;
+
+/**
+ * Kind of the problem reported by {@link Diagnostic}. It corresponds to the stage of the analysis the problem has been
+ * found at.
+ */
+public enum DiagnosticCode {
+    SYNTAX(1),
+    NAMESPACE(2),
+    IMPORT(3),
+    TYPE(4),
+    CONSTANT(5),
+    ENUMERATION(6),
+    METHOD(7),
+    DECORATOR(8),
+    LITERAL(9),
+    INHERITANCE(10);
+
+    private final int number;
+
+    DiagnosticCode(int number) {
+        this.number = number;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+}
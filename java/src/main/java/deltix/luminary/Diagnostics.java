@@ -0,0 +1,40 @@
+package deltix.luminary;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects problems found while loading projects. When the collection is set for {@link ProjectLoader}, the loader
+ * does not stop at the first problem: a file that contains a problem is excluded from the further analysis, and the
+ * other files of the project are analyzed as usual. The load still fails in the end, but all the problems are
+ * reported at once.
+ * <p>
+ * The collection is thread-safe, so it can be used by loaders that load projects in parallel.
+ */
+public class Diagnostics {
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+    public synchronized void add(@NotNull Diagnostic diagnostic) {
+        diagnostics.add(diagnostic);
+    }
+
+    /**
+     * Returns problems in the order they have been found.
+     *
+     * @return List of problems.
+     */
+    @NotNull
+    public synchronized List<Diagnostic> getDiagnostics() {
+        return new ArrayList<>(diagnostics);
+    }
+
+    public synchronized boolean isEmpty() {
+        return diagnostics.isEmpty();
+    }
+
+    public synchronized void clear() {
+        diagnostics.clear();
+    }
+}
@@ -15,6 +15,7 @@ public class FileDef implements TypeScope {
     private final List<EnumerationDef> definedEnumerations = new ArrayList<>();
     private final List<ImportDef> imports = new ArrayList<>();
     private final List<NameValuePair> options = new ArrayList<>();
+    private volatile TypeIndex typeIndex;
 
     public FileDef(@NotNull NamespaceDef namespace, @Nullable String fileName) {
         this.namespace = namespace;
@@ -72,4 +73,22 @@ public class FileDef implements TypeScope {
     public List<NameValuePair> getOptions() {
         return options;
     }
+
+    /**
+     * Returns the index of types that can be referenced within the file. If the index has not been set by the loader,
+     * it is built from the current definitions and imports of the file.
+     */
+    @NotNull
+    TypeIndex getTypeIndex() {
+        TypeIndex index = typeIndex;
+        if (index == null) {
+            index = TypeIndex.build(this);
+            typeIndex = index;
+        }
+        return index;
+    }
+
+    void setTypeIndex(@NotNull TypeIndex typeIndex) {
+        this.typeIndex = typeIndex;
+    }
 }
@@ -17,6 +17,10 @@ public class FileSystemLocation implements Location {
         this(Paths.get(path));
     }
 
+    public Path getPath() {
+        return path;
+    }
+
     @Override
     public int hashCode() {
         return path.hashCode();
@@ -4,7 +4,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class InterfaceDef extends ClassOrInterfaceDef<InterfacePropertyDef, TypeInterface> {
     private final TypeInterface type;
@@ -31,4 +33,14 @@ public class InterfaceDef extends ClassOrInterfaceDef<InterfacePropertyDef, Type
     public List<InterfaceMethodDef> getMethods() {
         return methods;
     }
+
+    @Override
+    Map<String, InterfacePropertyDef> collectAllProperties() {
+        final Map<String, InterfacePropertyDef> properties = new LinkedHashMap<>();
+        for (InterfaceDef superInterfaceDef : getSuperInterfaces())
+            properties.putAll(superInterfaceDef.getAllProperties());
+        for (InterfacePropertyDef propertyDef : getProperties())
+            properties.put(propertyDef.getName(), propertyDef);
+        return properties;
+    }
 }
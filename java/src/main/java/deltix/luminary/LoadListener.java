@@ -0,0 +1,67 @@
+package deltix.luminary;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives progress events of {@link ProjectLoader}. All the methods do nothing by default, so only the events of
+ * interest have to be overridden.
+ * <p>
+ * Events of different projects and {@link #fileParsed} events may be raised concurrently from the threads of the
+ * loader's executor, so implementations must be thread-safe. Exceptions thrown by the listener abort the load.
+ */
+public abstract class LoadListener {
+    /**
+     * Listener that ignores all the events.
+     */
+    public static final LoadListener NONE = new LoadListener() {
+    };
+
+    /**
+     * Called when the project file is about to be read.
+     *
+     * @param location Location of the project file.
+     * @param level    Depth of the project within the graph of references, the requested project has level 0.
+     */
+    public void projectStarted(@NotNull Location location, int level) {
+    }
+
+    /**
+     * Called when the source file is about to be read and parsed.
+     *
+     * @param location Location of the source file.
+     * @param path     Path of the source file relative to the directory of the project file.
+     * @param level    Depth of the project within the graph of references, the requested project has level 0.
+     */
+    public void fileStarted(@NotNull Location location, @NotNull String path, int level) {
+    }
+
+    /**
+     * Called when the source file has been parsed.
+     *
+     * @param location   Location of the source file.
+     * @param characters Number of characters in the file, or 0 if the file has been taken from the parse cache.
+     * @param tokens     Number of tokens in the file, or 0 if the file has been taken from the parse cache.
+     */
+    public void fileParsed(@NotNull Location location, int characters, int tokens) {
+    }
+
+    /**
+     * Called when the phase of the analysis has been completed for all the source files of the project.
+     *
+     * @param projectDef  Project being analyzed.
+     * @param phase       Completed phase.
+     * @param nanoseconds Time spent in the phase.
+     * @param files       Number of processed source files.
+     */
+    public void phaseCompleted(@NotNull ProjectDef projectDef, @NotNull LoadPhase phase, long nanoseconds, int files) {
+    }
+
+    /**
+     * Called when the project has been loaded successfully.
+     *
+     * @param projectDef Loaded project.
+     * @param level      Depth of the project within the graph of references, the requested project has level 0.
+     */
+    public void projectFinished(@NotNull ProjectDef projectDef, int level) {
+    }
+}
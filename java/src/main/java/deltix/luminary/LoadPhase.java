@@ -0,0 +1,19 @@
+package deltix.luminary;
+
+/**
+ * Phases of loading a project measured by {@link LoadStatistics}.
+ */
+public enum LoadPhase {
+    ENUMERATE_SOURCES,
+    PARSE,
+    COLLECT_TYPES,
+    RESOLVE_IMPORTS,
+    COLLECT_CONSTANTS,
+    CHECK_CONSTANT_VALUES,
+    CHECK_ENUMERATION_MEMBERS,
+    BUILD_TYPE_DEFINITIONS,
+    BUILD_INTERFACE_METHODS,
+    CHECK_DECORATORS,
+    RESOLVE_LITERALS,
+    CHECK_INHERITANCE
+}
@@ -0,0 +1,61 @@
+package deltix.luminary;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accumulates time spent in every phase of loading projects and the number of source files processed by it. When
+ * projects are loaded in parallel, times of all threads are summed up, so the total may exceed the wall time of the
+ * load.
+ * <p>
+ * The statistics are thread-safe and can be shared by several loaders.
+ */
+public class LoadStatistics {
+    private final AtomicLongArray times = new AtomicLongArray(LoadPhase.values().length);
+    private final AtomicLongArray counts = new AtomicLongArray(LoadPhase.values().length);
+
+    /**
+     * Returns the time spent in the phase.
+     *
+     * @param phase Phase of loading.
+     * @param unit  Unit of the result.
+     * @return Time spent in the phase.
+     */
+    public long getTime(@NotNull LoadPhase phase, @NotNull TimeUnit unit) {
+        return unit.convert(times.get(phase.ordinal()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of source files processed by the phase.
+     *
+     * @param phase Phase of loading.
+     * @return Number of processed files.
+     */
+    public long getCount(@NotNull LoadPhase phase) {
+        return counts.get(phase.ordinal());
+    }
+
+    public void reset() {
+        for (int i = 0; i < times.length(); i += 1) {
+            times.set(i, 0);
+            counts.set(i, 0);
+        }
+    }
+
+    void add(LoadPhase phase, long nanoseconds, int count) {
+        times.addAndGet(phase.ordinal(), nanoseconds);
+        counts.addAndGet(phase.ordinal(), count);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (LoadPhase phase : LoadPhase.values()) {
+            builder.append(phase).append(": ").append(getTime(phase, TimeUnit.MILLISECONDS)).append(" ms, ")
+                .append(getCount(phase)).append(" files").append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
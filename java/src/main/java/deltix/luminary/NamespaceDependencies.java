@@ -0,0 +1,149 @@
+package deltix.luminary;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects namespaces that definitions of the analyzed namespace refer to: imported namespaces and types, supertypes,
+ * types of properties, methods and constants, decorators and literals. Unlike {@link NamespaceReferences} the result
+ * is exact, since it is collected from resolved definitions. The namespace itself is not included.
+ */
+final class NamespaceDependencies {
+    private final NamespaceDef namespaceDef;
+    private final Set<NamespaceDef> namespaces = new HashSet<>();
+
+    private NamespaceDependencies(NamespaceDef namespaceDef) {
+        this.namespaceDef = namespaceDef;
+    }
+
+    static Set<NamespaceDef> collect(NamespaceDef namespaceDef) {
+        final NamespaceDependencies dependencies = new NamespaceDependencies(namespaceDef);
+        for (FileDef fileDef : namespaceDef.getFiles().values()) {
+            for (ImportDef importDef : fileDef.getImports()) {
+                if (importDef instanceof ImportNamespaceDef)
+                    dependencies.addNamespace(((ImportNamespaceDef) importDef).getTarget());
+                else if (importDef instanceof ImportTypeDef)
+                    dependencies.addType(((ImportTypeDef) importDef).getTarget());
+            }
+
+            dependencies.addScope(fileDef);
+        }
+
+        return dependencies.namespaces;
+    }
+
+    private void addScope(TypeScope scope) {
+        for (EnumerationDef enumerationDef : scope.getDefinedEnumerations()) {
+            addDecorators(enumerationDef.getDecorators());
+            for (EnumerationMemberDef memberDef : enumerationDef.getMembers()) {
+                addDecorators(memberDef.getDecorators());
+                addLiteral(memberDef.getRawValue());
+            }
+        }
+
+        for (ClassDef classDef : scope.getDefinedClasses()) {
+            addDecorators(classDef.getDecorators());
+            if (classDef.getSuperClass() != null)
+                addType(classDef.getSuperClass().getType());
+            for (InterfaceDef interfaceDef : classDef.getSuperInterfaces())
+                addType(interfaceDef.getType());
+            for (ClassPropertyDef propertyDef : classDef.getProperties()) {
+                addDecorators(propertyDef.getDecorators());
+                addType(propertyDef.getType());
+                addLiteral(propertyDef.getDefault());
+            }
+            addConstants(classDef.getDefinedConstants());
+            addScope(classDef);
+        }
+
+        for (InterfaceDef interfaceDef : scope.getDefinedInterfaces()) {
+            addDecorators(interfaceDef.getDecorators());
+            for (InterfaceDef superInterfaceDef : interfaceDef.getSuperInterfaces())
+                addType(superInterfaceDef.getType());
+            for (InterfacePropertyDef propertyDef : interfaceDef.getProperties()) {
+                addDecorators(propertyDef.getDecorators());
+                addType(propertyDef.getType());
+            }
+            for (InterfaceMethodDef methodDef : interfaceDef.getMethods()) {
+                addDecorators(methodDef.getDecorators());
+                addType(methodDef.getReturnType());
+                for (FormalParameterDef parameterDef : methodDef.getFormalParameters()) {
+                    addDecorators(parameterDef.getDecorators());
+                    addType(parameterDef.getType());
+                }
+            }
+            addScope(interfaceDef);
+        }
+
+        for (DecoratorDef decoratorDef : scope.getDefinedDecorators()) {
+            addDecorators(decoratorDef.getDecorators());
+            for (DecoratorPropertyDef propertyDef : decoratorDef.getProperties()) {
+                addDecorators(propertyDef.getDecorators());
+                addType(propertyDef.getType());
+                addLiteral(propertyDef.getDefault());
+            }
+            addConstants(decoratorDef.getDefinedConstants());
+            addScope(decoratorDef);
+        }
+    }
+
+    private void addConstants(List<ConstantDef> constantDefs) {
+        for (ConstantDef constantDef : constantDefs) {
+            addDecorators(constantDef.getDecorators());
+            addType(constantDef.getType());
+            addLiteral(constantDef.getValue());
+        }
+    }
+
+    private void addDecorators(List<Decorator> decorators) {
+        for (Decorator decorator : decorators) {
+            addNamespace(decorator.getDefinition().getFile().getNamespace());
+            for (DecoratorPropertyValue argument : decorator.getArguments())
+                addLiteral(argument.getValue());
+        }
+    }
+
+    private void addLiteral(Literal literal) {
+        if (literal instanceof LiteralEnumerationValue) {
+            addNamespace(((LiteralEnumerationValue) literal).getValue().getOwner().getFile().getNamespace());
+        } else if (literal instanceof LiteralConstant) {
+            // Constants of primitive types (e.g. Int32.MAX_VALUE) do not belong to any namespace.
+            final ConstantScope owner = ((LiteralConstant) literal).getValue().getOwner();
+            if (owner instanceof TypeScope)
+                addNamespace(((TypeScope) owner).getFile().getNamespace());
+        } else if (literal instanceof LiteralType) {
+            addType(((LiteralType) literal).getValue());
+        } else if (literal instanceof LiteralList) {
+            for (Literal item : ((LiteralList) literal).getValue())
+                addLiteral(item);
+        }
+    }
+
+    private void addType(Type type) {
+        if (type instanceof TypeCustom) {
+            addNamespace(((TypeCustom) type).getNamespace());
+        } else if (type instanceof TypeNullable) {
+            addType(((TypeNullable) type).getUnderlyingType());
+        } else if (type instanceof TypeList) {
+            addType(((TypeList) type).getUnderlyingType());
+        } else if (type instanceof TypeSet) {
+            addType(((TypeSet) type).getUnderlyingType());
+        } else if (type instanceof TypeMap) {
+            addType(((TypeMap) type).getKeyType());
+            addType(((TypeMap) type).getValueType());
+        } else if (type instanceof TypeAction) {
+            for (Type argumentType : ((TypeAction) type).getArgumentTypes())
+                addType(argumentType);
+        } else if (type instanceof TypeFunction) {
+            for (Type argumentType : ((TypeFunction) type).getArgumentTypes())
+                addType(argumentType);
+            addType(((TypeFunction) type).getReturnType());
+        }
+    }
+
+    private void addNamespace(NamespaceDef namespace) {
+        if (namespace != null && namespace != namespaceDef)
+            namespaces.add(namespace);
+    }
+}
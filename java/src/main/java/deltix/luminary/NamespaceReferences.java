@@ -0,0 +1,148 @@
+package deltix.luminary;
+
+import deltix.luminary.implementation.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects names of namespaces that a parsed source file may refer to: imported namespaces as well as all prefixes of
+ * qualified names used in types, decorators and constant values. The result is a superset of the namespaces that are
+ * actually used by the file.
+ */
+final class NamespaceReferences {
+    private final Set<String> namespaces = new HashSet<>();
+
+    private NamespaceReferences() {
+    }
+
+    static Set<String> collect(FileNode fileNode) {
+        final NamespaceReferences references = new NamespaceReferences();
+        for (ImportNode importNode : fileNode.getImports())
+            references.namespaces.add(importNode.getNamespace());
+        for (NameValuePair option : fileNode.getOptions())
+            references.addLiteral(option.getValue());
+        references.addContainer(fileNode);
+        return references.namespaces;
+    }
+
+    private void addContainer(TypeContainerNode containerNode) {
+        for (EnumerationNode enumerationNode : containerNode.getDefinedEnumerations()) {
+            addDecorators(enumerationNode.getDecorators());
+            for (EnumerationMemberNode memberNode : enumerationNode.getMembers()) {
+                addDecorators(memberNode.getDecorators());
+                addLiteral(memberNode.getValue());
+            }
+        }
+
+        for (ClassNode classNode : containerNode.getDefinedClasses()) {
+            addDecorators(classNode.getDecorators());
+            addTypes(classNode.getSupertypes());
+            for (ClassPropertyNode propertyNode : classNode.getProperties()) {
+                addDecorators(propertyNode.getDecorators());
+                addType(propertyNode.getType());
+                addLiteral(propertyNode.getDefault());
+            }
+            addConstants(classNode.getDefinedConstants());
+            addContainer(classNode);
+        }
+
+        for (InterfaceNode interfaceNode : containerNode.getDefinedInterfaces()) {
+            addDecorators(interfaceNode.getDecorators());
+            addTypes(interfaceNode.getSupertypes());
+            for (InterfacePropertyNode propertyNode : interfaceNode.getProperties()) {
+                addDecorators(propertyNode.getDecorators());
+                addType(propertyNode.getType());
+            }
+            for (InterfaceMethodNode methodNode : interfaceNode.getMethods()) {
+                addDecorators(methodNode.getDecorators());
+                addType(methodNode.getReturnType());
+                for (FormalParameterNode parameterNode : methodNode.getFormalParameters()) {
+                    addDecorators(parameterNode.getDecorators());
+                    addType(parameterNode.getType());
+                }
+            }
+            addContainer(interfaceNode);
+        }
+
+        for (DecoratorNode decoratorNode : containerNode.getDefinedDecorators()) {
+            addDecorators(decoratorNode.getDecorators());
+            for (DecoratorPropertyNode propertyNode : decoratorNode.getProperties()) {
+                addDecorators(propertyNode.getDecorators());
+                addType(propertyNode.getType());
+                addLiteral(propertyNode.getDefault());
+            }
+            addConstants(decoratorNode.getDefinedConstants());
+            addContainer(decoratorNode);
+        }
+    }
+
+    private void addConstants(List<ConstantNode> constantNodes) {
+        for (ConstantNode constantNode : constantNodes) {
+            addDecorators(constantNode.getDecorators());
+            addType(constantNode.getType());
+            addLiteral(constantNode.getValue());
+        }
+    }
+
+    private void addDecorators(List<DecoratorValueNode> decoratorNodes) {
+        for (DecoratorValueNode decoratorNode : decoratorNodes) {
+            addName(decoratorNode.getName());
+            if (decoratorNode.getArguments() != null)
+                for (NameValuePair argument : decoratorNode.getArguments())
+                    addLiteral(argument.getValue());
+        }
+    }
+
+    private void addLiteral(Literal literal) {
+        if (literal instanceof LiteralUnresolved && literal.getKind() == LiteralKind.TYPE)
+            addType(((LiteralUnresolved) literal).getType());
+        else if (literal instanceof LiteralUnresolved)
+            addName(((LiteralUnresolved) literal).getValue());
+        else if (literal instanceof LiteralList)
+            for (Literal item : ((LiteralList) literal).getValue())
+                addLiteral(item);
+    }
+
+    private void addTypes(List<TypeReferenceNode> types) {
+        if (types != null)
+            for (TypeReferenceNode type : types)
+                addType(type);
+    }
+
+    private void addType(TypeReferenceNode type) {
+        if (type == null)
+            return;
+
+        if (type.isNullable())
+            addType(type.getUnderlyingType());
+        else if (type.isGeneric())
+            addTypes(type.getArguments());
+        else
+            addName(type.getName());
+    }
+
+    /**
+     * Adds all the prefixes of the qualified name found in the given name or value text (e.g. {@code C.D.E}).
+     */
+    private void addName(String text) {
+        if (text == null)
+            return;
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i += 1) {
+            final char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isJavaIdentifierPart(c)) {
+                if (start < 0)
+                    start = i;
+            } else if (c == '.' && start >= 0) {
+                namespaces.add(text.substring(start, i));
+            } else {
+                if (start >= 0)
+                    namespaces.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+}
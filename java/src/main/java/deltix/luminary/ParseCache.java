@@ -0,0 +1,294 @@
+package deltix.luminary;
+
+import deltix.luminary.implementation.FileNode;
+import deltix.luminary.implementation.FileNodeSerializer;
+import deltix.luminary.parser.LuminaryLexer;
+import deltix.luminary.parser.LuminaryParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of parsed source files. Entries are keyed by the SHA-256 hash of the file content and the version
+ * of the grammar, so a file is parsed again only when it (or the parser) changes, no matter where it is located.
+ * <p>
+ * The cache directory may be shared by concurrent builds: entries are written to temporary files that are atomically
+ * renamed, and entries that cannot be read (e.g. deleted or corrupted) are treated as missing. When the total size of
+ * the entries exceeds the limit, the least recently used ones are deleted.
+ */
+public final class ParseCache {
+    private static final int MAGIC = 0x4C555843; // "LUXC"
+    // Increment when the format of serialized files or the content of parsed files changes.
+    private static final int FORMAT_VERSION = 2;
+    private static final String ENTRY_SUFFIX = ".bin";
+    private static final byte[] GRAMMAR_VERSION = computeGrammarVersion();
+
+    private final Path directory;
+    private final long maxSize;
+    private final AtomicLong writtenSize = new AtomicLong();
+
+    /**
+     * Initializes the new instance of @see ParseCache.
+     *
+     * @param directory Directory to keep cached files in. It is created if it does not exist.
+     * @param maxSize   Maximum total size of cached files in bytes.
+     */
+    public ParseCache(Path directory, long maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Maximum size of the cache must be positive.");
+
+        this.directory = directory;
+        this.maxSize = maxSize;
+        // Trim the cache after the first write, since the size of the directory is not known.
+        writtenSize.set(maxSize);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Deletes the least recently used entries until their total size is below the limit.
+     *
+     * @throws IOException if the cache directory cannot be listed.
+     */
+    public void trim() throws IOException {
+        writtenSize.set(0);
+        if (!Files.isDirectory(directory))
+            return;
+
+        final List<Entry> entries = new ArrayList<>();
+        long totalSize = 0;
+        try (DirectoryStream<Path> buckets = Files.newDirectoryStream(directory)) {
+            for (Path bucket : buckets) {
+                if (!Files.isDirectory(bucket))
+                    continue;
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(bucket, "*" + ENTRY_SUFFIX)) {
+                    for (Path file : files) {
+                        try {
+                            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                            entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime()));
+                            totalSize += attributes.size();
+                        } catch (NoSuchFileException ignored) {
+                            // Deleted by a concurrent build.
+                        }
+                    }
+                } catch (NoSuchFileException ignored) {
+                }
+            }
+        }
+
+        if (totalSize <= maxSize)
+            return;
+
+        // Leave some room, so that the cache is not trimmed again after every write.
+        final long targetSize = maxSize - maxSize / 4;
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry x, Entry y) {
+                return x.lastUsed.compareTo(y.lastUsed);
+            }
+        });
+        for (Entry entry : entries) {
+            if (totalSize <= targetSize)
+                break;
+            Files.deleteIfExists(entry.file);
+            totalSize -= entry.size;
+        }
+    }
+
+    /**
+     * Returns the cached result of parsing the source file or parses the file and caches the result.
+     *
+     * @param location Location of the source file.
+     * @return Parsed file.
+     * @throws IOException if the source file cannot be read.
+     */
+    FileNode parse(Location location) throws IOException {
+        return parse(location, readContent(location));
+    }
+
+    /**
+     * Returns the cached result of parsing the source file that has already been read or parses the content and caches
+     * the result.
+     *
+     * @param location Location of the source file.
+     * @param content  Content of the source file.
+     * @return Parsed file.
+     * @throws IOException if the content cannot be decoded.
+     */
+    FileNode parse(Location location, byte[] content) throws IOException {
+        final String key = computeKey(content);
+        final Path file = directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+
+        final FileNode cachedNode = readEntry(file);
+        if (cachedNode != null) {
+            cachedNode.setLocation(location);
+            return cachedNode;
+        }
+
+        final FileNode fileNode = ParserSession.get().parse(location, content);
+        // Caching is best effort: the directory may be full, read-only or trimmed by a concurrent build.
+        try {
+            writeEntry(file, fileNode);
+        } catch (IOException ignored) {
+        }
+        return fileNode;
+    }
+
+    private FileNode readEntry(Path file) {
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (IOException exception) {
+            return null;
+        }
+
+        try {
+            final DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (input.readInt() != MAGIC)
+                throw new IOException("Invalid header.");
+            final int length = input.readInt();
+            final int checksum = input.readInt();
+            if (length != input.available() || checksum != computeChecksum(bytes, bytes.length - length, length))
+                throw new IOException("Invalid checksum.");
+
+            final FileNode fileNode = FileNodeSerializer.read(input);
+            // Mark the entry as recently used. This may fail if the entry is being deleted by a concurrent build.
+            try {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException ignored) {
+            }
+            return fileNode;
+        } catch (IOException | RuntimeException exception) {
+            // The entry is corrupted, so drop it and parse the file again.
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    private void writeEntry(Path file, FileNode fileNode) throws IOException {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try {
+            FileNodeSerializer.write(new DataOutputStream(payload), fileNode);
+        } catch (IllegalStateException exception) {
+            // The file contains something that cannot be serialized, so it is simply not cached.
+            return;
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.size() + 12);
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(payload.size());
+        output.writeInt(computeChecksum(payload.toByteArray(), 0, payload.size()));
+        payload.writeTo(output);
+
+        Files.createDirectories(file.getParent());
+        final Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporaryFile, bytes.toByteArray());
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+
+        if (writtenSize.addAndGet(bytes.size()) >= maxSize / 8)
+            trim();
+    }
+
+    static byte[] readContent(Location location) throws IOException {
+        if (location instanceof FileSystemLocation)
+            return Files.readAllBytes(((FileSystemLocation) location).getPath());
+
+        try (InputStream input = location.readAsStream()) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            copy(input, output);
+            return output.toByteArray();
+        }
+    }
+
+    private static void copy(InputStream input, OutputStream output) throws IOException {
+        final byte[] buffer = new byte[8192];
+        for (int count = input.read(buffer); count >= 0; count = input.read(buffer))
+            output.write(buffer, 0, count);
+    }
+
+    private static String computeKey(byte[] content) {
+        final MessageDigest digest = createDigest();
+        digest.update(GRAMMAR_VERSION);
+        digest.update(content);
+
+        final byte[] hash = digest.digest();
+        final StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte b : hash)
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return builder.toString();
+    }
+
+    private static int computeChecksum(byte[] bytes, int offset, int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] computeGrammarVersion() {
+        final MessageDigest digest = createDigest();
+        digest.update(Integer.toString(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+        digest.update(LuminaryLexer._serializedATN.getBytes(StandardCharsets.UTF_8));
+        digest.update(LuminaryParser._serializedATN.getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not supported.", exception);
+        }
+    }
+
+    private static final class Entry {
+        private final Path file;
+        private final long size;
+        private final FileTime lastUsed;
+
+        private Entry(Path file, long size, FileTime lastUsed) {
+            this.file = file;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package deltix.luminary;
+
+import deltix.luminary.implementation.FileNode;
+import deltix.luminary.implementation.LuminaryListenerImplementation;
+import deltix.luminary.implementation.StreamingTreeWalker;
+import deltix.luminary.parser.LuminaryLexer;
+import deltix.luminary.parser.LuminaryParser;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Parses Luminary source files reusing the lexer and the parser of the current thread. All sessions share the DFA
+ * cache which makes parsing faster as more files are parsed. Long-living processes may warm the cache up on startup
+ * with {@link #warmUp(Iterable)} and bound its memory with {@link #clearCache()}.
+ */
+public final class ParserSession {
+    private static final ThreadLocal<ParserSession> SESSION = new ThreadLocal<ParserSession>() {
+        @Override
+        protected ParserSession initialValue() {
+            return new ParserSession();
+        }
+    };
+
+    private static volatile Cache cache = new Cache();
+
+    private final LuminaryLexer lexer;
+    private final LuminaryParser parser;
+    private final SourceReader reader = new SourceReader();
+    private Cache usedCache;
+    private int characterCount = 0;
+    private int tokenCount = 0;
+    private CancellationToken cancellationToken = CancellationToken.NONE;
+
+    private ParserSession() {
+        lexer = new LuminaryLexer(null);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(ProjectLoader.ThrowingErrorListener.INSTANCE);
+
+        parser = new LuminaryParser(null);
+        parser.removeErrorListeners();
+    }
+
+    /**
+     * Parses the given source files to populate the shared DFA cache. Results of parsing are discarded.
+     *
+     * @param sources Source files to parse.
+     * @throws IOException if some source file cannot be read.
+     */
+    public static void warmUp(Iterable<? extends Location> sources) throws IOException {
+        final ParserSession session = get();
+        for (Location source : sources) {
+            try {
+                session.parse(source);
+            } catch (IllegalStateException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Discards the shared DFA cache. Parses that are in progress complete with the old cache, subsequent parses
+     * start with an empty one.
+     */
+    public static void clearCache() {
+        cache = new Cache();
+    }
+
+    /**
+     * Returns the session of the current thread.
+     *
+     * @return Parser session of the current thread.
+     */
+    static ParserSession get() {
+        return SESSION.get();
+    }
+
+    /**
+     * Returns the number of characters in the file parsed last, or 0 if no file has been parsed since the counters
+     * were reset.
+     */
+    int getCharacterCount() {
+        return characterCount;
+    }
+
+    /**
+     * Returns the number of tokens in the file parsed last, or 0 if no file has been parsed since the counters were
+     * reset.
+     */
+    int getTokenCount() {
+        return tokenCount;
+    }
+
+    void resetCounters() {
+        characterCount = 0;
+        tokenCount = 0;
+    }
+
+    /**
+     * Sets the token that is checked periodically while parsing. Parsing stops with {@link CancellationException}
+     * when the token is cancelled or the thread is interrupted.
+     */
+    void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    FileNode parse(Location location) throws IOException {
+        return parse(location, reader.read(location));
+    }
+
+    /**
+     * Parses the source file whose content has already been read.
+     *
+     * @param location Location of the source file.
+     * @param content  UTF-8 encoded content of the file.
+     * @return Parsed file.
+     * @throws IOException if the content cannot be decoded.
+     */
+    FileNode parse(Location location, byte[] content) throws IOException {
+        return parse(location, reader.read(location, content));
+    }
+
+    private FileNode parse(Location location, CharStream input) {
+        updateCache();
+
+        // Token stream is not reused as it cannot be completely reset.
+        lexer.setTokenFactory(CommonTokenFactory.DEFAULT);
+        lexer.setInputStream(input);
+        final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        parser.setTokenStream(tokens);
+        try {
+            // Try the faster SLL prediction first. It succeeds for almost all valid inputs, so the full LL prediction
+            // (and the proper error reporting) is used only when SLL fails.
+            // Nodes are built while parsing, so only the item being parsed is kept in the parse tree.
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(new BailErrorStrategy());
+            LuminaryListenerImplementation visitor = new LuminaryListenerImplementation(tokens);
+            parser.addParseListener(new StreamingTreeWalker(parser, visitor));
+            if (cancellationToken != CancellationToken.NONE)
+                parser.addParseListener(new CancellationCheck(cancellationToken));
+            try {
+                parser.protocol();
+            } catch (ParseCancellationException exception) {
+                parser.reset();
+                parser.removeParseListeners();
+                parser.addErrorListener(ProjectLoader.ThrowingErrorListener.INSTANCE);
+                parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+                parser.setErrorHandler(new DefaultErrorStrategy());
+                visitor = new LuminaryListenerImplementation(tokens);
+                parser.addParseListener(new StreamingTreeWalker(parser, visitor));
+                if (cancellationToken != CancellationToken.NONE)
+                    parser.addParseListener(new CancellationCheck(cancellationToken));
+                parser.protocol();
+            }
+
+            if (visitor.getNumberOfErrors() != 0)
+                throw new IllegalStateException("File '" + location + "' does not contain a valid protocol definition.");
+
+            characterCount = input.size();
+            tokenCount = tokens.size();
+            final FileNode fileNode = visitor.getFile();
+            fileNode.setLocation(location);
+            return fileNode;
+        } finally {
+            // Release the parsed file.
+            parser.removeErrorListeners();
+            parser.removeParseListeners();
+            parser.setTokenStream(null);
+            lexer.setInputStream(null);
+            reader.release();
+        }
+    }
+
+    /**
+     * Parses only the namespace, import and option statements at the head of the source file. The file is read and
+     * tokenized up to the first type definition only.
+     *
+     * @param location Location of the source file.
+     * @return File node that contains no type definitions.
+     * @throws IOException if the source file cannot be read.
+     */
+    FileNode parseHeader(Location location) throws IOException {
+        updateCache();
+
+        // Characters are not buffered, so tokens have to keep their text.
+        final Reader input = new InputStreamReader(location.readAsStream(), StandardCharsets.UTF_8);
+        lexer.setTokenFactory(new CommonTokenFactory(true));
+        lexer.setInputStream(new UnbufferedCharStream(input));
+        final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        parser.setTokenStream(tokens);
+        try {
+            parser.addErrorListener(ProjectLoader.ThrowingErrorListener.INSTANCE);
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+
+            final LuminaryListenerImplementation visitor = new LuminaryListenerImplementation(tokens);
+            visitor.enterProtocol(null);
+            ParseTreeWalker.DEFAULT.walk(visitor, parser.namespace());
+            while (true) {
+                final int token = tokens.LA(1);
+                if (token == LuminaryLexer.IMPORT)
+                    ParseTreeWalker.DEFAULT.walk(visitor, parser.importStatement());
+                else if (token == LuminaryLexer.OPTION)
+                    ParseTreeWalker.DEFAULT.walk(visitor, parser.option());
+                else
+                    break;
+            }
+
+            final FileNode fileNode = visitor.getFile();
+            fileNode.setLocation(location);
+            return fileNode;
+        } finally {
+            parser.removeErrorListeners();
+            parser.setTokenStream(null);
+            lexer.setInputStream(null);
+            input.close();
+        }
+    }
+
+    private void updateCache() {
+        final Cache currentCache = cache;
+        if (usedCache != currentCache) {
+            lexer.setInterpreter(new LexerATNSimulator(lexer, LuminaryLexer._ATN, currentCache.lexerDFA,
+                currentCache.contextCache));
+            parser.setInterpreter(new ParserATNSimulator(parser, LuminaryParser._ATN, currentCache.parserDFA,
+                currentCache.contextCache));
+            usedCache = currentCache;
+        }
+    }
+
+    private static final class Cache {
+        private final DFA[] lexerDFA = createDFA(LuminaryLexer._ATN);
+        private final DFA[] parserDFA = createDFA(LuminaryParser._ATN);
+        private final PredictionContextCache contextCache = new PredictionContextCache();
+
+        private static DFA[] createDFA(ATN atn) {
+            final DFA[] dfa = new DFA[atn.getNumberOfDecisions()];
+            for (int i = 0; i < dfa.length; i += 1)
+                dfa[i] = new DFA(atn.getDecisionState(i), i);
+            return dfa;
+        }
+    }
+
+    /**
+     * Checks the cancellation token every few tokens consumed by the parser.
+     */
+    private static final class CancellationCheck implements ParseTreeListener {
+        private static final int INTERVAL = 256;
+
+        private final CancellationToken cancellationToken;
+        private int count = 0;
+
+        private CancellationCheck(CancellationToken cancellationToken) {
+            this.cancellationToken = cancellationToken;
+        }
+
+        @Override
+        public void visitTerminal(TerminalNode node) {
+            count += 1;
+            if (count % INTERVAL != 0)
+                return;
+
+            cancellationToken.throwIfCancelled();
+            if (Thread.currentThread().isInterrupted())
+                throw new CancellationException("Parsing has been interrupted.");
+        }
+
+        @Override
+        public void visitErrorNode(ErrorNode node) {
+        }
+
+        @Override
+        public void enterEveryRule(ParserRuleContext ctx) {
+        }
+
+        @Override
+        public void exitEveryRule(ParserRuleContext ctx) {
+        }
+    }
+}
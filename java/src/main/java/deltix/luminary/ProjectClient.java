@@ -0,0 +1,124 @@
+package deltix.luminary;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Paths;
+
+/**
+ * Client of {@link ProjectDaemon}. When the daemon is not running, projects are loaded within the current process
+ * by a new loader every time, so the client can be used unconditionally and always sees the current source files.
+ * <p>
+ * Errors of projects are reported the same way as by {@link ProjectLoader}: with {@link IllegalStateException} that
+ * contains the message of the original exception.
+ */
+public class ProjectClient {
+    private static final int CONNECT_TIMEOUT = 1000;
+
+    private final int port;
+
+    /**
+     * Initializes the new instance of @see ProjectClient.
+     *
+     * @param port Port the daemon listens to.
+     */
+    public ProjectClient(int port) {
+        this.port = port;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Loads the project with given relative or absolute path.
+     *
+     * @param projectFile Relative or absolute path to a project file.
+     * @return Loaded project.
+     * @throws IOException When IO exception occurs while loading the project.
+     */
+    @NotNull
+    public ProjectDef load(@NotNull String projectFile) throws IOException {
+        final Socket socket = connect();
+        if (socket == null)
+            return new ProjectLoader().load(projectFile);
+
+        try (Socket client = socket) {
+            final DataInputStream input = request(client, ProjectDaemon.LOAD, projectFile, "");
+            return ProjectSnapshot.read(input);
+        }
+    }
+
+    /**
+     * Loads the project and checks that it has no errors.
+     *
+     * @param projectFile Relative or absolute path to a project file.
+     * @throws IOException When IO exception occurs while loading the project.
+     */
+    public void validate(@NotNull String projectFile) throws IOException {
+        final Socket socket = connect();
+        if (socket == null) {
+            new ProjectLoader().load(projectFile);
+            return;
+        }
+
+        try (Socket client = socket) {
+            request(client, ProjectDaemon.VALIDATE, projectFile, "");
+        }
+    }
+
+    /**
+     * Loads the project and saves it to the directory (see {@link ProjectSaver}). The daemon saves projects only
+     * within the directory it has been started with.
+     *
+     * @param projectFile   Relative or absolute path to a project file.
+     * @param rootDirectory Directory to save the project to.
+     * @throws IOException When IO exception occurs while loading or saving the project.
+     */
+    public void save(@NotNull String projectFile, @NotNull String rootDirectory) throws IOException {
+        final Socket socket = connect();
+        if (socket == null) {
+            ProjectSaver.save(new ProjectLoader().load(projectFile), rootDirectory);
+            return;
+        }
+
+        try (Socket client = socket) {
+            request(client, ProjectDaemon.SAVE, projectFile, Paths.get(rootDirectory).toAbsolutePath().toString());
+        }
+    }
+
+    private Socket connect() {
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT);
+            return socket;
+        } catch (IOException exception) {
+            // The daemon is not running.
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    private static DataInputStream request(Socket socket, byte command, String projectFile, String argument) throws IOException {
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        output.writeByte(command);
+        output.writeUTF(Paths.get(projectFile).toAbsolutePath().toString());
+        output.writeUTF(argument);
+        output.flush();
+
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        if (input.readByte() != ProjectDaemon.SUCCESS)
+            throw new IllegalStateException(input.readUTF());
+        return input;
+    }
+}
@@ -0,0 +1,289 @@
+package deltix.luminary;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-lived process that keeps loaded projects in memory and serves requests of {@link ProjectClient} over a
+ * loopback socket. Every project is kept in its own {@link ProjectSession} and is updated before every request by
+ * analyzing again only the source files that have been modified since the previous request.
+ * <p>
+ * The daemon accepts connections from the local host only, but it does not authenticate clients: any local process
+ * can make it read projects it has access to. Projects are saved only within the directory given when the daemon is
+ * created, saving is refused if there is none.
+ */
+public class ProjectDaemon implements Closeable {
+    public static final int DEFAULT_PORT = 7431;
+
+    static final byte LOAD = 1;
+    static final byte VALIDATE = 2;
+    static final byte SAVE = 3;
+    static final byte SUCCESS = 0;
+    static final byte FAILURE = 1;
+
+    // Failure messages are limited, so that they fit into a string written with writeUTF even in 3-byte characters.
+    private static final int MAX_MESSAGE_LENGTH = 16 * 1024;
+
+    private final ParseCache parseCache;
+    private final Path saveDirectory;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<Location, LoadedProject> projects = new HashMap<>();
+    private final Thread thread;
+
+    /**
+     * Initializes the new instance of @see ProjectDaemon that refuses to save projects. Call {@link #start()} to
+     * start serving requests.
+     *
+     * @param port       Port to listen to or 0 to choose any free port.
+     * @param parseCache Cache of parsed source files or {@code null} if files should always be parsed.
+     * @throws IOException if the port cannot be opened.
+     */
+    public ProjectDaemon(int port, @Nullable ParseCache parseCache) throws IOException {
+        this(port, parseCache, null);
+    }
+
+    /**
+     * Initializes the new instance of @see ProjectDaemon. Call {@link #start()} to start serving requests.
+     *
+     * @param port          Port to listen to or 0 to choose any free port.
+     * @param parseCache    Cache of parsed source files or {@code null} if files should always be parsed.
+     * @param saveDirectory Existing directory projects can be saved to (including its subdirectories) or
+     *                      {@code null} if projects should not be saved.
+     * @throws IOException if the port cannot be opened or the directory does not exist.
+     */
+    public ProjectDaemon(int port, @Nullable ParseCache parseCache, @Nullable Path saveDirectory) throws IOException {
+        this.parseCache = parseCache;
+        this.saveDirectory = saveDirectory != null ? saveDirectory.toRealPath() : null;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serve();
+            }
+        }, "Luminary daemon");
+    }
+
+    /**
+     * Port the daemon listens to.
+     *
+     * @return Port the daemon listens to.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts serving requests in the background thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops serving requests. Requests that are in progress are completed.
+     *
+     * @throws IOException if the socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdown();
+        // The socket is released only when the accepting thread leaves.
+        try {
+            if (thread.isAlive())
+                thread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serve() {
+        try {
+            while (true) {
+                final Socket socket = serverSocket.accept();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                });
+            }
+        } catch (IOException ignored) {
+            // The daemon has been closed.
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket client = socket) {
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+            try {
+                serve(input, output);
+            } catch (IOException exception) {
+                // The request is malformed or the response cannot be written, the client is told so if it still listens.
+                writeFailure(output, exception);
+            }
+        } catch (IOException ignored) {
+            // The client has disconnected.
+        }
+    }
+
+    private void serve(DataInputStream input, DataOutputStream output) throws IOException {
+        final byte command = input.readByte();
+        final Location location = new FileSystemLocation(input.readUTF());
+        final String argument = input.readUTF();
+
+        final LoadedProject project;
+        synchronized (projects) {
+            LoadedProject existingProject = projects.get(location);
+            if (existingProject == null) {
+                existingProject = new LoadedProject();
+                projects.put(location, existingProject);
+            }
+            project = existingProject;
+        }
+
+        // Requests for the same project are served one by one, since the project is updated in place.
+        synchronized (project) {
+            final ProjectDef projectDef;
+            try {
+                if (command != LOAD && command != VALIDATE && command != SAVE)
+                    throw new IllegalArgumentException("Unknown command " + command + ".");
+                if (command == SAVE)
+                    checkSaveDirectory(argument);
+                projectDef = project.update(location);
+                if (command == SAVE)
+                    ProjectSaver.save(projectDef, argument);
+            } catch (IOException | RuntimeException exception) {
+                writeFailure(output, exception);
+                return;
+            }
+
+            output.writeByte(SUCCESS);
+            if (command == LOAD)
+                ProjectSnapshot.write(projectDef, output);
+            output.flush();
+        }
+    }
+
+    private void checkSaveDirectory(String directory) throws IOException {
+        if (saveDirectory == null)
+            throw new IllegalStateException("The daemon does not save projects.");
+
+        // Directories that do not exist are reported by the saver.
+        final Path path = Paths.get(directory);
+        if (Files.isDirectory(path) && !path.toRealPath().startsWith(saveDirectory))
+            throw new IllegalStateException("Directory '" + directory + "' is outside of '" + saveDirectory + "'.");
+    }
+
+    private static void writeFailure(DataOutputStream output, Exception exception) throws IOException {
+        String message = String.valueOf(exception.getMessage());
+        if (message.length() > MAX_MESSAGE_LENGTH)
+            message = message.substring(0, MAX_MESSAGE_LENGTH) + "...";
+
+        output.writeByte(FAILURE);
+        output.writeUTF(message);
+        output.flush();
+    }
+
+    /**
+     * Project loaded by the daemon. Every project has its own loader, since referenced projects are updated in place
+     * and thus cannot be shared between sessions.
+     */
+    private final class LoadedProject {
+        private Map<Path, FileTime> modificationTimes = new HashMap<>();
+        private ProjectSession session;
+
+        private ProjectDef update(Location location) throws IOException {
+            if (session == null) {
+                final ProjectLoader loader = new ProjectLoader();
+                loader.setParseCache(parseCache);
+                session = ProjectSession.open(loader, location);
+                modificationTimes = getModificationTimes();
+                return session.getProject();
+            }
+
+            // Times are taken before the update, so that files modified during the update are analyzed next time.
+            // Added and removed files are detected by the session itself.
+            final Map<Path, FileTime> currentTimes = getModificationTimes();
+            final List<Location> modifiedFiles = new ArrayList<>();
+            for (ProjectDef projectDef : session.getProjects()) {
+                final Path projectFile = getProjectFile(projectDef);
+                if (projectFile == null)
+                    continue;
+
+                final boolean isProjectModified = isModified(projectFile, currentTimes);
+                for (Location file : session.getSourceFiles(projectDef))
+                    if (isProjectModified || isModified(((FileSystemLocation) file).getPath(), currentTimes))
+                        modifiedFiles.add(file);
+            }
+
+            session.update(modifiedFiles);
+            for (Map.Entry<Path, FileTime> entry : getModificationTimes().entrySet())
+                if (!currentTimes.containsKey(entry.getKey()))
+                    currentTimes.put(entry.getKey(), entry.getValue());
+            modificationTimes = currentTimes;
+            return session.getProject();
+        }
+
+        private boolean isModified(Path file, Map<Path, FileTime> currentTimes) {
+            final FileTime modificationTime = currentTimes.get(file);
+            return modificationTime == null || !modificationTime.equals(modificationTimes.get(file));
+        }
+
+        private Map<Path, FileTime> getModificationTimes() throws IOException {
+            final Map<Path, FileTime> times = new HashMap<>();
+            for (ProjectDef projectDef : session.getProjects()) {
+                final Path projectFile = getProjectFile(projectDef);
+                if (projectFile == null)
+                    continue;
+
+                putModificationTime(projectFile, times);
+                for (Location file : session.getSourceFiles(projectDef))
+                    putModificationTime(((FileSystemLocation) file).getPath(), times);
+            }
+            return times;
+        }
+
+        private Path getProjectFile(ProjectDef projectDef) {
+            return projectDef.getDirectory() instanceof FileSystemLocation
+                ? ((FileSystemLocation) projectDef.getDirectory()).getPath().resolve(projectDef.getFileName())
+                : null;
+        }
+
+        private void putModificationTime(Path file, Map<Path, FileTime> times) throws IOException {
+            try {
+                times.put(file, Files.getLastModifiedTime(file));
+            } catch (NoSuchFileException ignored) {
+                // The file has been deleted, the session will notice it.
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final ParseCache parseCache = args.length > 1 && !args[1].isEmpty() ? new ParseCache(Paths.get(args[1]), 256L << 20) : null;
+        final Path saveDirectory = args.length > 2 ? Paths.get(args[2]) : null;
+        final ProjectDaemon daemon = new ProjectDaemon(port, parseCache, saveDirectory);
+        System.out.println("Luminary daemon is listening to port " + daemon.getPort() + ".");
+        daemon.start();
+    }
+}
@@ -16,6 +16,7 @@ public class ProjectDef {
     private final Map<String, ProjectDef> references = new HashMap<>();
     private final SortedMap<String, NamespaceDef> namespaces = new TreeMap<>();
     private final String fileName;
+    private volatile Map<String, TypeCustom> qualifiedTypes;
 
     public ProjectDef(@Nullable Location directory, @Nullable String fileName) {
         this.directory = directory;
@@ -60,4 +61,28 @@ public class ProjectDef {
     public SortedMap<String, NamespaceDef> getNamespaces() {
         return namespaces;
     }
+
+    /**
+     * Returns the types defined within this project by their names qualified with namespaces, e.g.
+     * {@code Namespace.Outer.Inner}. The index is built on the first use after it has been invalidated.
+     */
+    @NotNull
+    Map<String, TypeCustom> getQualifiedTypes() {
+        Map<String, TypeCustom> types = qualifiedTypes;
+        if (types == null) {
+            types = new HashMap<>();
+            for (NamespaceDef namespaceDef : namespaces.values())
+                for (Map.Entry<String, TypeCustom> type : namespaceDef.getDefinedTypes().entrySet())
+                    types.put(namespaceDef.getNamespace() + "." + type.getKey(), type.getValue());
+            qualifiedTypes = types;
+        }
+        return types;
+    }
+
+    /**
+     * Drops the index of qualified type names, must be called whenever types are added to or removed from the project.
+     */
+    void invalidateQualifiedTypes() {
+        qualifiedTypes = null;
+    }
 }
@@ -1,30 +1,43 @@
 package deltix.luminary;
 
+import com.google.common.base.Function;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.util.concurrent.AsyncCallable;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonParseException;
 import deltix.luminary.implementation.*;
-import deltix.luminary.parser.LuminaryLexer;
-import deltix.luminary.parser.LuminaryParser;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.misc.Pair;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Allows to load, parse and verify the Luminary projects. Keeps all loaded projects cached thus saving time when
  * some projects have to be loaded several times (e.g. were being referenced by other projects multiple times).
+ * The loader can be shared between threads: concurrent loads of the same project wait for a single in-flight load,
+ * while different projects are loaded in parallel.
  */
 public class ProjectLoader {
     private static final DecoratorDef DECORATOR_USAGE_DEF;
@@ -82,9 +95,16 @@ public class ProjectLoader {
         PREDEFINED_TYPES.put(DECORATOR_USAGE_DEF.getName(), DECORATOR_USAGE_DEF.getType());
     }
 
-    private final HashSet<Location> parsedProjects = new HashSet<>();
-    private final HashMap<Location, ProjectDef> loadedProjects = new HashMap<>();
-    private boolean verbose = false;
+    private final ConcurrentMap<Location, ListenableFuture<ProjectDef>> loadedProjects = new ConcurrentHashMap<>();
+    // Composite types are interned, so that structurally equal types resolved by the loader are the same instance.
+    // References are weak, since the types of definitions replaced by project sessions must not be kept.
+    private final Interner<Type> types = Interners.newWeakInterner();
+    private LoadListener listener = LoadListener.NONE;
+    private ExecutorService executor = null;
+    private boolean lazyReferences = false;
+    private ParseCache parseCache = null;
+    private Diagnostics diagnostics = null;
+    private LoadStatistics statistics = null;
 
     /**
      * Returns true if verbose output enabled.
@@ -92,16 +112,144 @@ public class ProjectLoader {
      * @return true if verbose output enabled.
      */
     public boolean isVerbose() {
-        return verbose;
+        return listener instanceof ConsoleListener;
     }
 
     /**
-     * Set verbose output flag.
+     * Set verbose output flag. Enabling verbose output replaces the listener, disabling it leaves a custom listener
+     * intact.
      *
      * @param verbose new value of the flag.
      */
     public void setVerbose(boolean verbose) {
-        this.verbose = verbose;
+        if (verbose)
+            this.listener = new ConsoleListener();
+        else if (listener instanceof ConsoleListener)
+            this.listener = LoadListener.NONE;
+    }
+
+    /**
+     * Returns the listener that receives progress events of loading projects.
+     *
+     * @return Listener of progress events.
+     */
+    @NotNull
+    public LoadListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Set the listener that receives progress events of loading projects. The listener replaces the verbose output.
+     *
+     * @param listener Listener of progress events or {@link LoadListener#NONE} to ignore them.
+     */
+    public void setListener(@NotNull LoadListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the executor used to parse source files and to analyze independent projects in parallel.
+     *
+     * @return Executor used to load projects or {@code null} if projects are loaded sequentially.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor used to parse source files and to analyze independent projects in parallel. A project is
+     * analyzed as soon as all the projects it references are loaded. Parsed files are always analyzed in the same
+     * order thus the loaded project (and reported errors) does not depend on whether the executor is set or not.
+     *
+     * @param executor Executor to load projects with or {@code null} to load them sequentially.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns true if referenced projects are loaded partially.
+     *
+     * @return true if only the namespaces used by referencing projects are loaded.
+     */
+    public boolean isLazyReferences() {
+        return lazyReferences;
+    }
+
+    /**
+     * Set the flag that makes the loader load only those namespaces of referenced projects that are imported or
+     * referred by qualified names (directly or indirectly) from the requested project. Source files of referenced
+     * projects are assigned to namespaces by their paths. Partially loaded referenced projects are not cached, while
+     * projects that are already loaded completely are reused.
+     *
+     * @param lazyReferences new value of the flag.
+     */
+    public void setLazyReferences(boolean lazyReferences) {
+        this.lazyReferences = lazyReferences;
+    }
+
+    /**
+     * Returns the cache of parsed source files.
+     *
+     * @return Cache of parsed source files or {@code null} if source files are always parsed.
+     */
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    /**
+     * Set the persistent cache of parsed source files. Source files whose content has not changed since they were
+     * cached are not parsed again, which makes repeated builds of large projects much faster.
+     *
+     * @param parseCache Cache of parsed source files or {@code null} to always parse source files.
+     */
+    public void setParseCache(ParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+
+    /**
+     * Returns the collection of problems found while loading projects.
+     *
+     * @return Collection of problems or {@code null} if loading stops at the first problem.
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Set the collection of problems found while loading projects. When the collection is set, all the files of the
+     * project are analyzed even if some of them contain problems, and all the problems are added to the collection.
+     * The load still fails with an exception if any problem has been found.
+     *
+     * @param diagnostics Collection of problems or {@code null} to stop loading at the first problem.
+     */
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Returns the statistics of loading projects.
+     *
+     * @return Statistics of loading projects or {@code null} if they are not collected.
+     */
+    public LoadStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Set the statistics to add time spent in every phase of loading projects to.
+     *
+     * @param statistics Statistics of loading projects or {@code null} to not collect them.
+     */
+    public void setStatistics(LoadStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the file that defines builtin types (e.g. {@code DecoratorUsage}) that are shared by all projects.
+     */
+    static FileDef getBuiltinFile() {
+        return DECORATOR_USAGE_DEF.getFile();
     }
 
     /**
@@ -118,7 +266,83 @@ public class ProjectLoader {
      * @throws IOException When IO exception occurs while loading the project file or any of the source files.
      */
     public ProjectDef load(Location location) throws IOException {
-        return load(location, 0);
+        return load(location, 0, CancellationToken.NONE);
+    }
+
+    /**
+     * Loads the project with given relative or absolute path stopping as soon as the token is cancelled. Other loads
+     * that wait for the same project (or a project it references) to be loaded by this call are stopped as well.
+     *
+     * @param location          Location of the project file. Can be either {@link ZipArchiveLocation} or {@link FileSystemLocation}.
+     * @param cancellationToken Token that allows to stop loading.
+     * @return Loaded project.
+     * @throws IOException           When IO exception occurs while loading the project file or any of the source files.
+     * @throws CancellationException When the token is cancelled.
+     */
+    public ProjectDef load(Location location, @NotNull CancellationToken cancellationToken) throws IOException {
+        return load(location, 0, cancellationToken);
+    }
+
+    /**
+     * Starts loading the project without blocking the calling thread. Project files are read and source files are
+     * enumerated and read on the threads of the given executor, so slow storage does not occupy the threads parsing
+     * and analyzing files. Parsing and the analysis run on the executor of the loader (see {@link #setExecutor}) or,
+     * when it is not set, on the threads of the given executor as well.
+     * <p>
+     * Cancelling the returned future stops loading the project the same way as cancelling the token passed to
+     * {@link #load(Location, CancellationToken)} does. Loads of the same project that have been started by other
+     * calls are not affected.
+     *
+     * @param location Location of the project file. Can be either {@link ZipArchiveLocation} or {@link FileSystemLocation}.
+     * @param executor Executor to read files with.
+     * @return Future of the loaded project.
+     */
+    @NotNull
+    public ListenableFuture<ProjectDef> loadAsync(final Location location, @NotNull final Executor executor) {
+        final CancellationToken cancellationToken = new CancellationToken();
+        final SettableFuture<ProjectDef> result = SettableFuture.create();
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled())
+                    cancellationToken.cancel();
+            }
+        }, MoreExecutors.directExecutor());
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ListenableFuture<ProjectDef> loadingProject;
+                try {
+                    if (location == null)
+                        throw new IllegalStateException("Cannot find the project file.");
+
+                    loadingProject = loadedProjects.get(location);
+                    while (loadingProject == null)
+                        loadingProject = startLoading(location, 0, cancellationToken, executor);
+                } catch (IOException | RuntimeException exception) {
+                    result.setException(exception);
+                    return;
+                }
+
+                // The future of the project is shared with other loads, so it is not cancelled with the result.
+                Futures.addCallback(loadingProject, new FutureCallback<ProjectDef>() {
+                    @Override
+                    public void onSuccess(ProjectDef projectDef) {
+                        result.set(projectDef);
+                    }
+
+                    @Override
+                    public void onFailure(@NotNull Throwable throwable) {
+                        if (throwable instanceof CancellationException && cancellationToken.isCancelled())
+                            result.cancel(false);
+                        else
+                            result.setException(throwable);
+                    }
+                }, MoreExecutors.directExecutor());
+            }
+        });
+        return result;
     }
 
     /**
@@ -129,32 +353,105 @@ public class ProjectLoader {
      * @throws IOException When IO exception occurs while loading the project file or any of the source files.
      */
     public ProjectDef load(String projectFile) throws IOException {
-        return load(new FileSystemLocation("."), projectFile, 0);
+        return load(locate(new FileSystemLocation("."), projectFile), 0, CancellationToken.NONE);
+    }
+
+    /**
+     * Builds the dependency graph of project's source files parsing only their namespace and import statements.
+     * Mismatches between namespaces and paths of source files as well as imports of namespaces that are not defined
+     * within the project or referenced projects are reported without parsing source files completely.
+     *
+     * @param location Location of the project file. Can be either {@link ZipArchiveLocation} or {@link FileSystemLocation}.
+     * @return Dependency graph of project's source files.
+     * @throws IOException When IO exception occurs while loading the project file or any of the source files.
+     */
+    public SourceGraph prescan(Location location) throws IOException {
+        final ProjectFile projectFile = loadProjectFile(location, 0, new HashSet<Location>());
+        final SourceGraph graph = new SourceGraph();
+        final Map<Location, FileNode> files = new LinkedHashMap<>();
+        final Map<String, List<Location>> namespaces = new HashMap<>();
+        for (Pair<Location, Location> source : enumerateSources(projectFile)) {
+            final FileNode fileNode = parseSourceHeader(source.b);
+            checkNamespace(source, fileNode);
+            files.put(source.b, fileNode);
+            graph.addFile(source.b, fileNode.getNamespace());
+
+            List<Location> namespaceFiles = namespaces.get(fileNode.getNamespace());
+            if (namespaceFiles == null) {
+                namespaceFiles = new ArrayList<>();
+                namespaces.put(fileNode.getNamespace(), namespaceFiles);
+            }
+            namespaceFiles.add(source.b);
+        }
+
+        final Set<String> referencedNamespaces = new HashSet<>();
+        if (projectFile.References != null) {
+            for (String reference : projectFile.References) {
+                final ProjectFile referencedProjectFile = loadProjectFile(locate(location.getParent(), reference), 1,
+                    new HashSet<Location>());
+                for (Pair<Location, Location> source : enumerateSources(referencedProjectFile))
+                    referencedNamespaces.add(parseSourceHeader(source.b).getNamespace());
+            }
+        }
+
+        // Files of the same namespace reference each other without imports.
+        for (List<Location> namespaceFiles : namespaces.values())
+            for (Location file : namespaceFiles)
+                for (Location namespaceFile : namespaceFiles)
+                    graph.addDependency(file, namespaceFile);
+
+        for (Map.Entry<Location, FileNode> file : files.entrySet()) {
+            for (ImportNode importNode : file.getValue().getImports()) {
+                final List<Location> namespaceFiles = namespaces.get(importNode.getNamespace());
+                if (namespaceFiles != null) {
+                    for (Location namespaceFile : namespaceFiles)
+                        graph.addDependency(file.getKey(), namespaceFile);
+                } else if (!referencedNamespaces.contains(importNode.getNamespace())) {
+                    throw new IllegalStateException(file.getKey().getFileName() + ": namespace '" + importNode.getNamespace()
+                        + (importNode.getTypeName() != null ? "." + importNode.getTypeName() : "")
+                        + "' is not defined within this project or referenced projects.");
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Builds the dependency graph of project's source files parsing only their namespace and import statements.
+     *
+     * @param projectFile Relative or absolute path to a project file.
+     * @return Dependency graph of project's source files.
+     * @throws IOException When IO exception occurs while loading the project file or any of the source files.
+     */
+    public SourceGraph prescan(String projectFile) throws IOException {
+        return prescan(locate(new FileSystemLocation("."), projectFile));
     }
 
-    private ProjectDef tryLoad(Location directory, String relativePath, int level) throws IOException {
+    private static Location tryLocate(Location directory, String relativePath) {
         try {
             final Location location = directory.resolve(relativePath);
-            if (location != null)
-                return load(location, 0);
+            if (location != null) {
+                location.readAsStream().close();
+                return location;
+            }
         } catch (IOException ignored) {
         }
         return null;
     }
 
-    private ProjectDef load(Location current, String referenceString, int level) throws IOException {
+    private static Location locate(Location current, String referenceString) throws IOException {
         // 1. Check whether the provided reference is absolute file location.
 
         final Path reference = Paths.get(referenceString);
         if (Files.exists(reference))
-            return load(new FileSystemLocation(reference));
+            return new FileSystemLocation(reference);
 
         // 2. Provided reference is NOT an absolute file location.
 
         // 2.1. Check against current location.
-        ProjectDef projectDef = tryLoad(current, referenceString, level);
-        if (projectDef != null)
-            return projectDef;
+        Location location = tryLocate(current, referenceString);
+        if (location != null)
+            return location;
 
         // 2.2. Check against all search path entries in turn.
 
@@ -166,15 +463,15 @@ public class ProjectLoader {
                     continue;
                 if (Files.isDirectory(searchEntry)) {
                     // 2.2.1. Search entry is a directory.
-                    projectDef = tryLoad(new FileSystemLocation(searchEntry), referenceString, level);
-                    if (projectDef != null)
-                        return projectDef;
+                    location = tryLocate(new FileSystemLocation(searchEntry), referenceString);
+                    if (location != null)
+                        return location;
                 } else {
                     // 2.2.2. Search entry is NOT a directory. Check whether it is a ZIP archive.
                     try {
-                        projectDef = tryLoad(new ZipArchiveLocation(searchEntry.toString()), referenceString, level);
-                        if (projectDef != null)
-                            return projectDef;
+                        location = tryLocate(new ZipArchiveLocation(searchEntry.toString()), referenceString);
+                        if (location != null)
+                            return location;
                     } catch (IOException ignored) {
                     }
                 }
@@ -183,36 +480,290 @@ public class ProjectLoader {
         throw new FileNotFoundException("Reference '" + referenceString + "' cannot be located.");
     }
 
-    private ProjectDef load(Location location, int level) throws IOException {
+    private ProjectDef load(Location location, int level, CancellationToken cancellationToken) throws IOException {
         if (location == null)
             throw new IllegalStateException("Cannot find the project file.");
 
-        // Project has been loaded (and thus protocols imported by it).
-        ProjectDef projectDef = loadedProjects.get(location);
-        if (projectDef != null)
-            return projectDef;
-
-        // First, parse the project file and attempt to load referenced projects recursively.
-        ProjectFile projectFile = loadProjectFile(location, level);
-        Map<String, ProjectDef> references = new HashMap<>(projectFile.References != null ? projectFile.References.length : 0);
-        if (projectFile.References != null)
-            for (String reference : projectFile.References)
-                references.put(reference, load(location.getParent(), reference, level + 1));
-
-        // When all dependencies have been loaded correctly, analyze the protocol itself.
-        projectDef = loadProject(projectFile, references, level + 1);
-        loadedProjects.put(location, projectDef);
-        return projectDef;
+        // Project has been loaded (and thus protocols imported by it) or is being loaded by another thread.
+        ListenableFuture<ProjectDef> loadingProject = loadedProjects.get(location);
+        while (loadingProject == null)
+            loadingProject = startLoading(location, level, cancellationToken, null);
+
+        try {
+            return getResult(loadingProject);
+        } catch (CancellationException exception) {
+            // The future of the project is cancelled when the analysis stops, report the reason instead.
+            cancellationToken.throwIfCancelled();
+            throw exception;
+        } catch (IOException | RuntimeException exception) {
+            throw exception;
+        } catch (InterruptedException exception) {
+            throw new InterruptedIOException("Interrupted while loading project '" + location + "'.");
+        } catch (Exception exception) {
+            throw new IllegalStateException(exception);
+        }
     }
 
-    private ProjectFile loadProjectFile(Location location, int level) throws IOException {
-        if (verbose) {
-            StringBuilder builder = new StringBuilder();
-            for (int i = 0; i < level; i += 1)
-                builder.append("    ");
-            builder.append("Loading project file '").append(location).append("'...");
-            System.out.println(builder.toString());
+    private ListenableFuture<ProjectDef> startLoading(final Location location, int level,
+                                                      CancellationToken cancellationToken, Executor readExecutor)
+        throws IOException {
+        // First, parse the project file and the project files of all referenced projects recursively.
+        final Map<Location, ListenableFuture<ProjectDef>> loadingProjects = new HashMap<>();
+        final LinkedHashMap<Location, PendingProject> pendingProjects = new LinkedHashMap<>();
+        collectProjectFiles(location, level, new HashSet<Location>(), loadingProjects, pendingProjects, cancellationToken);
+        for (PendingProject pendingProject : pendingProjects.values())
+            pendingProject.readExecutor = readExecutor;
+        if (!lazyReferences)
+            return startLoading(location, loadingProjects, pendingProjects);
+
+        // Sources of lazily loaded projects are selected without blocking, since the calling thread may be one of
+        // the threads reading the files.
+        return Futures.transformAsync(selectSources(location, pendingProjects), new AsyncFunction<Void, ProjectDef>() {
+            @Override
+            public ListenableFuture<ProjectDef> apply(Void ignored) {
+                return startLoading(location, loadingProjects, pendingProjects);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<ProjectDef> startLoading(Location location,
+                                                      Map<Location, ListenableFuture<ProjectDef>> loadingProjects,
+                                                      Map<Location, PendingProject> pendingProjects) {
+        // When all project files have been parsed correctly, analyze the projects. Referenced projects always
+        // precede the projects referencing them, and the requested project is the last one. Projects that are
+        // already being loaded by another thread are not loaded twice.
+        for (Map.Entry<Location, PendingProject> entry : pendingProjects.entrySet()) {
+            final SettableFuture<ProjectDef> future = SettableFuture.create();
+            ListenableFuture<ProjectDef> loadingProject = !entry.getValue().isPartial
+                ? loadedProjects.putIfAbsent(entry.getKey(), future)
+                : null;
+            if (loadingProject == null) {
+                loadingProject = future;
+                startLoading(entry.getKey(), entry.getValue(), loadingProjects, future);
+            }
+            loadingProjects.put(entry.getKey(), loadingProject);
+        }
+        return loadingProjects.get(location);
+    }
+
+    private void startLoading(final Location location, final PendingProject pendingProject,
+                              Map<Location, ListenableFuture<ProjectDef>> loadingProjects,
+                              final SettableFuture<ProjectDef> future) {
+        // Failed projects are evicted from the cache so that they can be loaded again later.
+        Futures.addCallback(future, new FutureCallback<ProjectDef>() {
+            @Override
+            public void onSuccess(ProjectDef result) {
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                loadedProjects.remove(location, future);
+            }
+        }, MoreExecutors.directExecutor());
+
+        try {
+            final Map<String, ListenableFuture<ProjectDef>> references = new LinkedHashMap<>();
+            for (Map.Entry<String, Location> reference : pendingProject.references.entrySet())
+                references.put(reference.getKey(), loadingProjects.get(reference.getValue()));
+
+            // Source files are parsed right away, only the analysis has to wait for referenced projects.
+            final ListeningExecutorService service = getService();
+            final List<Pair<Location, Location>> sources = pendingProject.sources != null
+                ? pendingProject.sources
+                : enumerateSources(pendingProject.projectFile);
+            final List<ListenableFuture<FileNode>> parsedSources = pendingProject.parsedSources != null
+                ? pendingProject.parsedSources
+                : submitSourceFiles(service, sources, pendingProject);
+
+            final List<ListenableFuture<?>> dependencies = new ArrayList<>();
+            dependencies.addAll(references.values());
+            dependencies.addAll(parsedSources);
+            future.setFuture(Futures.whenAllComplete(dependencies).call(new Callable<ProjectDef>() {
+                @Override
+                public ProjectDef call() throws Exception {
+                    final Map<String, ProjectDef> referencedProjects = new HashMap<>(references.size());
+                    for (Map.Entry<String, ListenableFuture<ProjectDef>> reference : references.entrySet())
+                        referencedProjects.put(reference.getKey(), getResult(reference.getValue()));
+
+                    return loadProject(pendingProject.projectFile, sources, parsedSources, referencedProjects,
+                        pendingProject.level, pendingProject.cancellationToken);
+                }
+            }, service));
+        } catch (IOException | RuntimeException exception) {
+            future.setException(exception);
+        }
+    }
+
+    private ListeningExecutorService getService() {
+        return executor != null ? MoreExecutors.listeningDecorator(executor) : MoreExecutors.newDirectExecutorService();
+    }
+
+    private ListenableFuture<Void> selectSources(Location location, Map<Location, PendingProject> pendingProjects)
+        throws IOException {
+        return new SourceSelection(location, pendingProjects).selectProject(0);
+    }
+
+    /**
+     * Selects sources of the projects loaded lazily. Projects referencing other projects are processed first, so all
+     * the namespaces used in a project are known before its sources are selected. Namespaces are selected in waves:
+     * when all the files of the namespaces selected so far are parsed, the namespaces they reference are selected
+     * next. Nothing waits for the files to be read or parsed.
+     */
+    private final class SourceSelection {
+        private final Location location;
+        private final Map<Location, PendingProject> pendingProjects;
+        private final List<Location> projectLocations;
+        private final ListeningExecutorService service = getService();
+        private final Map<Location, Set<String>> usedNamespaces = new HashMap<>();
+
+        // The project whose sources are being selected.
+        private Location projectLocation;
+        private PendingProject pendingProject;
+        private List<Pair<Location, Location>> sources;
+        private Map<String, List<Pair<Location, Location>>> namespaces;
+        private Set<String> selectedNamespaces;
+        private Map<Location, ListenableFuture<FileNode>> parsedFiles;
+
+        private SourceSelection(Location location, Map<Location, PendingProject> pendingProjects) {
+            this.location = location;
+            this.pendingProjects = pendingProjects;
+            this.projectLocations = new ArrayList<>(pendingProjects.keySet());
+            Collections.reverse(projectLocations);
+        }
+
+        private ListenableFuture<Void> selectProject(int index) throws IOException {
+            if (index == projectLocations.size())
+                return Futures.immediateFuture(null);
+
+            projectLocation = projectLocations.get(index);
+            pendingProject = pendingProjects.get(projectLocation);
+            pendingProject.cancellationToken.throwIfCancelled();
+            sources = enumerateSources(pendingProject.projectFile);
+            namespaces = new HashMap<>();
+            for (Pair<Location, Location> source : sources) {
+                final String namespace = getPathNamespace(source);
+                List<Pair<Location, Location>> namespaceSources = namespaces.get(namespace);
+                if (namespaceSources == null) {
+                    namespaceSources = new ArrayList<>();
+                    namespaces.put(namespace, namespaceSources);
+                }
+                namespaceSources.add(source);
+            }
+
+            // The requested project is loaded completely, other projects are loaded as much as they are used.
+            selectedNamespaces = new HashSet<>();
+            parsedFiles = new HashMap<>();
+            final List<String> initialNamespaces = new ArrayList<>();
+            final Set<String> usedProjectNamespaces = projectLocation.equals(location)
+                ? namespaces.keySet()
+                : usedNamespaces.get(projectLocation);
+            if (usedProjectNamespaces != null)
+                for (String namespace : usedProjectNamespaces)
+                    if (namespaces.containsKey(namespace) && selectedNamespaces.add(namespace))
+                        initialNamespaces.add(namespace);
+            return selectNamespaces(index, initialNamespaces);
+        }
+
+        private ListenableFuture<Void> selectNamespaces(final int index, List<String> wave) throws IOException {
+            if (wave.isEmpty()) {
+                completeProject();
+                return selectProject(index + 1);
+            }
+
+            pendingProject.cancellationToken.throwIfCancelled();
+            final List<ListenableFuture<FileNode>> parsedSources = new ArrayList<>();
+            for (String namespace : wave) {
+                final List<Pair<Location, Location>> namespaceSources = namespaces.get(namespace);
+                final List<ListenableFuture<FileNode>> parsedNamespaceSources = submitSourceFiles(service,
+                    namespaceSources, pendingProject);
+                for (int i = 0; i < namespaceSources.size(); i += 1)
+                    parsedFiles.put(namespaceSources.get(i).b, parsedNamespaceSources.get(i));
+                parsedSources.addAll(parsedNamespaceSources);
+            }
+
+            return Futures.whenAllComplete(parsedSources).callAsync(new AsyncCallable<Void>() {
+                @Override
+                public ListenableFuture<Void> call() throws Exception {
+                    return selectNamespaces(index, collectReferencedNamespaces(parsedSources));
+                }
+            }, service);
+        }
+
+        private List<String> collectReferencedNamespaces(List<ListenableFuture<FileNode>> parsedSources) {
+            final List<String> referencedNamespaces = new ArrayList<>();
+            for (ListenableFuture<FileNode> parsedSource : parsedSources) {
+                final FileNode fileNode;
+                try {
+                    fileNode = getResult(parsedSource);
+                } catch (Exception exception) {
+                    // The error is reported when the project is analyzed.
+                    continue;
+                }
+
+                for (String namespace : NamespaceReferences.collect(fileNode)) {
+                    if (namespaces.containsKey(namespace) && selectedNamespaces.add(namespace))
+                        referencedNamespaces.add(namespace);
+                    for (Location reference : pendingProject.references.values()) {
+                        Set<String> referenceNamespaces = usedNamespaces.get(reference);
+                        if (referenceNamespaces == null) {
+                            referenceNamespaces = new HashSet<>();
+                            usedNamespaces.put(reference, referenceNamespaces);
+                        }
+                        referenceNamespaces.add(namespace);
+                    }
+                }
+            }
+            return referencedNamespaces;
+        }
+
+        private void completeProject() {
+            // Selected sources keep the order they were enumerated in.
+            pendingProject.sources = new ArrayList<>();
+            pendingProject.parsedSources = new ArrayList<>();
+            for (Pair<Location, Location> source : sources) {
+                final ListenableFuture<FileNode> parsedSource = parsedFiles.get(source.b);
+                if (parsedSource != null) {
+                    pendingProject.sources.add(source);
+                    pendingProject.parsedSources.add(parsedSource);
+                }
+            }
+            pendingProject.isPartial = !projectLocation.equals(location);
+        }
+    }
+
+    private void collectProjectFiles(Location location, int level, Set<Location> parsedProjects,
+                                     Map<Location, ListenableFuture<ProjectDef>> loadingProjects,
+                                     Map<Location, PendingProject> pendingProjects,
+                                     CancellationToken cancellationToken) throws IOException {
+        cancellationToken.throwIfCancelled();
+        if (loadingProjects.containsKey(location) || pendingProjects.containsKey(location))
+            return;
+
+        final ListenableFuture<ProjectDef> loadingProject = loadedProjects.get(location);
+        if (loadingProject != null) {
+            loadingProjects.put(location, loadingProject);
+            return;
+        }
+
+        final ProjectFile projectFile = loadProjectFile(location, level, parsedProjects);
+        try {
+            final PendingProject pendingProject = new PendingProject(projectFile, level, cancellationToken);
+            if (projectFile.References != null) {
+                for (String reference : projectFile.References) {
+                    final Location referenceLocation = locate(location.getParent(), reference);
+                    pendingProject.references.put(reference, referenceLocation);
+                    collectProjectFiles(referenceLocation, level + 1, parsedProjects, loadingProjects, pendingProjects,
+                        cancellationToken);
+                }
+            }
+            pendingProjects.put(location, pendingProject);
+        } finally {
+            parsedProjects.remove(location);
         }
+    }
+
+    private ProjectFile loadProjectFile(Location location, int level, Set<Location> parsedProjects) throws IOException {
+        listener.projectStarted(location, level);
 
         if (parsedProjects.contains(location))
             throw new IllegalStateException("Project '" + location + "' is already parsed but not analyzed. This indicates a cycle of imports.");
@@ -229,43 +780,74 @@ public class ProjectLoader {
         return projectFile;
     }
 
-    private ProjectDef loadProject(ProjectFile projectFile, Map<String, ProjectDef> references, int level) throws IOException {
+    private ProjectDef loadProject(ProjectFile projectFile, List<Pair<Location, Location>> sources,
+                                  List<? extends Future<FileNode>> parsedSources, Map<String, ProjectDef> references,
+                                  int level, CancellationToken cancellationToken) throws IOException {
         final ProjectDef projectDef = new ProjectDef(projectFile.Path.getParent(), projectFile.Path.getFileName());
         projectDef.getReferences().putAll(references);
 
-        final HashMap<Location, FileNode> files = new HashMap<>();
-        final Location projectDir = projectFile.Path.getParent();
-        for (Pair<Location, Location> source : enumerateSources(projectFile)) {
-            final Location sourceLocation = source.a;
+        final LinkedHashMap<Location, FileNode> files = new LinkedHashMap<>();
+        final Diagnostics diagnostics = this.diagnostics;
+        boolean hasErrors = false;
+        int sourceIndex = 0;
+        for (Pair<Location, Location> source : sources) {
             final Location sourceFile = source.b;
-
-            final String relativePath = sourceLocation.relativize(sourceFile.getParent());
-
-            if (verbose) {
-                StringBuilder builder = new StringBuilder();
-                for (int i = 0; i < level; i += 1)
-                    builder.append("    ");
-                builder.append("Loading source file '").append(projectDir.relativize(sourceFile)).append("'...");
-                System.out.println(builder.toString());
-            }
-
             final FileNode fileNode;
             try {
-                fileNode = parseSourceFile(sourceFile);
+                cancellationToken.throwIfCancelled();
+                fileNode = getResult(parsedSources.get(sourceIndex++));
             } catch (Exception exception) {
+                // Parsing of the file may have failed just because the token has been cancelled.
+                if (cancellationToken.isCancelled()) {
+                    cancelParsing(parsedSources);
+                    cancellationToken.throwIfCancelled();
+                }
+                if (reportSyntaxError(sourceFile, exception)) {
+                    hasErrors = true;
+                    continue;
+                }
+                cancelParsing(parsedSources);
                 throw new IllegalStateException(sourceFile.toString() + ": failed to parse Luminary.", exception);
             }
 
-            // Make sure that source file's relative path matches with its namespace.
-            final String namespace = relativePath.replace('\\', '.').replace('/', '.');
-            if (!namespace.equals(fileNode.getNamespace()))
-                throw new IllegalStateException("File '" + relativePath + "' has invalid namespace: '" + namespace + "' is expected.");
-
+            try {
+                checkNamespace(source, fileNode);
+            } catch (IllegalStateException exception) {
+                if (diagnostics == null)
+                    throw exception;
+                diagnostics.add(new Diagnostic(sourceFile, 0, 0, DiagnosticCode.NAMESPACE, String.valueOf(exception.getMessage())));
+                hasErrors = true;
+                continue;
+            }
             files.put(sourceFile, fileNode);
         }
 
-        // Accumulate types defined within the project.
+        analyzeFiles(projectDef, files, cancellationToken);
+        if (hasErrors)
+            throw createDiagnosticsException(projectDef);
+
+        listener.projectFinished(projectDef, level);
+        return projectDef;
+    }
 
+    /**
+     * Builds definitions of the parsed files and adds them to the project. Namespaces of the files must not be in
+     * the project yet, they are created from the given files only. All the other namespaces of the project and
+     * referenced projects must be completely analyzed.
+     * <p>
+     * If diagnostics are collected, files that contain problems are excluded from the further analysis, and the
+     * exception is thrown only when all the other files have been analyzed.
+     *
+     * @param projectDef Project to add definitions to.
+     * @param files      Parsed source files in the order they were enumerated.
+     */
+    void analyzeFiles(ProjectDef projectDef, Map<Location, FileNode> files) {
+        analyzeFiles(projectDef, files, CancellationToken.NONE);
+    }
+
+    private void analyzeFiles(final ProjectDef projectDef, Map<Location, FileNode> files,
+                              final CancellationToken cancellationToken) {
+        final List<SourceFile> sourceFiles = new ArrayList<>(files.size());
         for (Map.Entry<Location, FileNode> file : files.entrySet()) {
             NamespaceDef namespaceDef = projectDef.getNamespaces().get(file.getValue().getNamespace());
             if (namespaceDef == null) {
@@ -275,135 +857,272 @@ public class ProjectLoader {
 
             final FileDef fileDef = new FileDef(namespaceDef, file.getKey().getFileName());
             fileDef.getOptions().addAll(file.getValue().getOptions());
-
-            collectTypes(fileDef, file.getValue(), fileDef.getNamespace());
+            sourceFiles.add(new SourceFile(file.getKey(), fileDef, file.getValue()));
         }
 
+        // Accumulate types defined within the project.
+
+        forEachFile(projectDef, cancellationToken, sourceFiles, LoadPhase.COLLECT_TYPES, DiagnosticCode.TYPE, new FileAction() {
+            @Override
+            void run(FileDef fileDef, FileNode fileNode) {
+                fileDef.setTypeIndex(new TypeIndex());
+                collectTypes(fileDef, fileNode, fileDef.getNamespace());
+            }
+        });
+        projectDef.invalidateQualifiedTypes();
+
         // Resolve imports.
 
-        for (Map.Entry<Location, FileNode> file : files.entrySet()) {
-            final NamespaceDef namespaceDef = projectDef.getNamespaces().get(file.getValue().getNamespace());
-            final FileDef fileDef = namespaceDef.getFiles().get(file.getKey().getFileName());
+        final Map<String, List<NamespaceDef>> namespaceDirectory = getNamespaceDirectory(projectDef);
+        forEachFile(projectDef, cancellationToken, sourceFiles, LoadPhase.RESOLVE_IMPORTS, DiagnosticCode.IMPORT, new FileAction() {
+            @Override
+            void run(FileDef fileDef, FileNode fileNode) {
+                resolveImports(namespaceDirectory, fileDef, fileNode);
+            }
+        });
 
-            for (int i = 0; i < file.getValue().getImports().size(); i += 1) {
-                final ImportNode importNode = file.getValue().getImports().get(i);
+        // Files of the analyzed namespaces in the order of namespaces.
+        final List<SourceFile> orderedFiles = getOrderedFiles(projectDef, sourceFiles);
 
-                final List<NamespaceDef> namespaceCandidates = new ArrayList<>();
-                final NamespaceDef importedNamespaceDef = projectDef.getNamespaces().get(importNode.getNamespace());
-                if (importedNamespaceDef != null)
-                    namespaceCandidates.add(importedNamespaceDef);
+        // Collect all the constants defined within a project.
 
-                for (ProjectDef referencedProjectDef : projectDef.getReferences().values()) {
-                    final NamespaceDef def = referencedProjectDef.getNamespaces().get(importNode.getNamespace());
-                    if (def != null)
-                        namespaceCandidates.add(def);
-                }
+        forEachFile(projectDef, cancellationToken, sourceFiles, LoadPhase.COLLECT_CONSTANTS, DiagnosticCode.CONSTANT, new FileAction() {
+            @Override
+            void run(FileDef fileDef, FileNode fileNode) {
+                collectConstants(fileDef, fileNode, fileDef.getNamespace());
+            }
+        });
 
-                if (importNode.getTypeName() == null) {
-                    if (namespaceCandidates.size() == 0)
-                        throw new IllegalStateException(fileDef.getFileName() + ": namespace '" + importNode.getNamespace()
-                            + "' is not defined within this project or referenced projects.");
-                    if (namespaceCandidates.size() > 1)
-                        throw new IllegalStateException(fileDef.getFileName() + ": namespace '" + importNode.getNamespace()
-                            + "' is defined multiple times.");
+        // Check types of all constants.
 
-                    fileDef.getImports().add(new ImportNamespaceDef(namespaceCandidates.get(0)));
-                    continue;
-                }
+        forEachFile(projectDef, cancellationToken, orderedFiles, LoadPhase.CHECK_CONSTANT_VALUES, DiagnosticCode.CONSTANT, new FileAction() {
+            @Override
+            void run(FileDef fileDef, FileNode fileNode) {
+                checkConstantValues(fileDef);
+            }
+        });
 
-                final List<TypeCustom> typeCandidates = new ArrayList<>();
-                for (NamespaceDef candidate : namespaceCandidates) {
-                    final TypeCustom type = candidate.getDefinedTypes().get(importNode.getTypeName());
-                    if (type != null)
-                        typeCandidates.add(type);
-                }
+        // Check enumeration members.
 
-                if (typeCandidates.size() == 0)
-                    throw new IllegalStateException(fileDef.getFileName() + ": namespace '" + importNode.getNamespace()
-                        + "." + importNode.getTypeName() + "' is not defined within this project or referenced projects.");
-                if (typeCandidates.size() > 1)
-                    throw new IllegalStateException(fileDef.getFileName() + ": namespace '" + importNode.getNamespace()
-                        + "." + importNode.getTypeName() + "' is defined multiple times.");
+        forEachFile(projectDef, cancellationToken, orderedFiles, LoadPhase.CHECK_ENUMERATION_MEMBERS, DiagnosticCode.ENUMERATION, new FileAction() {
+            @Override
+            void run(FileDef fileDef, FileNode fileNode) {
+                checkEnumerationMembers(fileDef);
+            }
+        });
 
-                if (importNode.getAlias() == null) {
-                    for (int j = i + 1; j < file.getValue().getImports().size(); j += 1)
-                        if (importNode.getTypeName().equals(file.getValue().getImports().get(j).getTypeName()) && file.getValue().getImports().get(j).getAlias() == null)
-                            throw new IllegalStateException(fileDef.getFileName() + ": type '" + importNode.getTypeName() + "' imported more than once.");
-                } else {
-                    for (int j = i + 1; j < file.getValue().getImports().size(); j += 1)
-                        if (importNode.getAlias().equals(file.getValue().getImports().get(i).getAlias()))
-                            throw new IllegalStateException(fileDef.getFileName() + ": alias '" + importNode.getAlias() + "' defined more than once.");
-                }
+        // Check custom type definitions.
 
-                fileDef.getImports().add(new ImportTypeDef(typeCandidates.get(0), importNode.getAlias()));
+        forEachFile(projectDef, cancellationToken, sourceFiles, LoadPhase.BUILD_TYPE_DEFINITIONS, DiagnosticCode.TYPE, new FileAction() {
+            @Override
+            void run(FileDef fileDef, FileNode fileNode) {
+                buildTypeDefinitions(fileDef, fileNode);
             }
-        }
+        });
 
-        // Collect all the constants defined within a project.
+        // Check interface method definitions.
 
-        for (Map.Entry<Location, FileNode> file : files.entrySet()) {
-            final NamespaceDef namespaceDef = projectDef.getNamespaces().get(file.getValue().getNamespace());
-            final FileDef fileDef = namespaceDef.getFiles().get(file.getKey().getFileName());
+        forEachFile(projectDef, cancellationToken, sourceFiles, LoadPhase.BUILD_INTERFACE_METHODS, DiagnosticCode.METHOD, new FileAction() {
+            @Override
+            void run(FileDef fileDef, FileNode fileNode) {
+                buildInterfaceMethods(fileDef, fileNode);
+            }
+        });
 
-            collectConstants(fileDef, file.getValue(), fileDef.getNamespace());
-        }
+        // Check decorators.
 
-        // Check types of all constants.
+        forEachFile(projectDef, cancellationToken, sourceFiles, LoadPhase.CHECK_DECORATORS, DiagnosticCode.DECORATOR, new FileAction() {
+            @Override
+            void run(FileDef fileDef, FileNode fileNode) {
+                checkDecorators(fileDef, fileNode);
+            }
+        });
 
-        for (NamespaceDef namespaceDef : projectDef.getNamespaces().values())
-            for (FileDef fileDef : namespaceDef.getFiles().values())
-                checkConstantValues(fileDef);
+        // Resolve all unresolved literals.
 
-        // Check enumeration members.
+        forEachFile(projectDef, cancellationToken, orderedFiles, LoadPhase.RESOLVE_LITERALS, DiagnosticCode.LITERAL, new FileAction() {
+            @Override
+            void run(FileDef fileDef, FileNode fileNode) {
+                resolveLiterals(fileDef);
+            }
+        });
 
-        for (NamespaceDef namespaceDef : projectDef.getNamespaces().values())
-            for (FileDef fileDef : namespaceDef.getFiles().values())
-                checkEnumerationMembers(fileDef);
+        // Flatten inheritance of all classes and interfaces, so that cycles are found and inherited properties are
+        // checked once per type.
 
-        // Check custom type definitions.
+        forEachFile(projectDef, cancellationToken, orderedFiles, LoadPhase.CHECK_INHERITANCE, DiagnosticCode.INHERITANCE, new FileAction() {
+            @Override
+            void run(FileDef fileDef, FileNode fileNode) {
+                checkScopeInheritance(fileDef);
+            }
+        });
 
-        for (Map.Entry<Location, FileNode> file : files.entrySet()) {
-            final NamespaceDef namespaceDef = projectDef.getNamespaces().get(file.getValue().getNamespace());
-            final FileDef fileDef = namespaceDef.getFiles().get(file.getKey().getFileName());
+        for (SourceFile sourceFile : sourceFiles)
+            if (sourceFile.hasErrors)
+                throw createDiagnosticsException(projectDef);
+    }
 
-            buildTypeDefinitions(fileDef, file.getValue());
+    /**
+     * Maps namespaces that can be imported within the project to their definitions within the project and referenced
+     * projects. More than one definition means that the namespace cannot be imported, since it is ambiguous.
+     */
+    private static Map<String, List<NamespaceDef>> getNamespaceDirectory(ProjectDef projectDef) {
+        final Map<String, List<NamespaceDef>> directory = new HashMap<>();
+        addNamespaces(directory, projectDef);
+        for (ProjectDef referencedProjectDef : projectDef.getReferences().values())
+            addNamespaces(directory, referencedProjectDef);
+        return directory;
+    }
+
+    private static void addNamespaces(Map<String, List<NamespaceDef>> directory, ProjectDef projectDef) {
+        for (NamespaceDef namespaceDef : projectDef.getNamespaces().values()) {
+            List<NamespaceDef> namespaceDefs = directory.get(namespaceDef.getNamespace());
+            if (namespaceDefs == null) {
+                namespaceDefs = new ArrayList<>(1);
+                directory.put(namespaceDef.getNamespace(), namespaceDefs);
+            }
+            namespaceDefs.add(namespaceDef);
         }
+    }
 
-        // Check interface method definitions.
+    private void resolveImports(Map<String, List<NamespaceDef>> namespaceDirectory, FileDef fileDef, FileNode fileNode) {
+        for (int i = 0; i < fileNode.getImports().size(); i += 1) {
+            final ImportNode importNode = fileNode.getImports().get(i);
 
-        for (Map.Entry<Location, FileNode> file : files.entrySet()) {
-            final NamespaceDef namespaceDef = projectDef.getNamespaces().get(file.getValue().getNamespace());
-            final FileDef fileDef = namespaceDef.getFiles().get(file.getKey().getFileName());
+            List<NamespaceDef> namespaceCandidates = namespaceDirectory.get(importNode.getNamespace());
+            if (namespaceCandidates == null)
+                namespaceCandidates = Collections.emptyList();
+
+            if (importNode.getTypeName() == null) {
+                if (namespaceCandidates.size() == 0)
+                    throw new IllegalStateException(fileDef.getFileName() + ": namespace '" + importNode.getNamespace()
+                        + "' is not defined within this project or referenced projects.");
+                if (namespaceCandidates.size() > 1)
+                    throw new IllegalStateException(fileDef.getFileName() + ": namespace '" + importNode.getNamespace()
+                        + "' is defined multiple times.");
 
-            buildInterfaceMethods(fileDef, file.getValue());
+                addImport(fileDef, new ImportNamespaceDef(namespaceCandidates.get(0)));
+                continue;
+            }
+
+            final List<TypeCustom> typeCandidates = new ArrayList<>();
+            for (NamespaceDef candidate : namespaceCandidates) {
+                final TypeCustom type = candidate.getDefinedTypes().get(importNode.getTypeName());
+                if (type != null)
+                    typeCandidates.add(type);
+            }
+
+            if (typeCandidates.size() == 0)
+                throw new IllegalStateException(fileDef.getFileName() + ": namespace '" + importNode.getNamespace()
+                    + "." + importNode.getTypeName() + "' is not defined within this project or referenced projects.");
+            if (typeCandidates.size() > 1)
+                throw new IllegalStateException(fileDef.getFileName() + ": namespace '" + importNode.getNamespace()
+                    + "." + importNode.getTypeName() + "' is defined multiple times.");
+
+            if (importNode.getAlias() == null) {
+                for (int j = i + 1; j < fileNode.getImports().size(); j += 1)
+                    if (importNode.getTypeName().equals(fileNode.getImports().get(j).getTypeName()) && fileNode.getImports().get(j).getAlias() == null)
+                        throw new IllegalStateException(fileDef.getFileName() + ": type '" + importNode.getTypeName() + "' imported more than once.");
+            } else {
+                for (int j = i + 1; j < fileNode.getImports().size(); j += 1)
+                    if (importNode.getAlias().equals(fileNode.getImports().get(i).getAlias()))
+                        throw new IllegalStateException(fileDef.getFileName() + ": alias '" + importNode.getAlias() + "' defined more than once.");
+            }
+
+            addImport(fileDef, new ImportTypeDef(typeCandidates.get(0), importNode.getAlias()));
         }
+    }
 
-        // Check decorators.
+    private static void addImport(FileDef fileDef, ImportDef importDef) {
+        fileDef.getImports().add(importDef);
+        fileDef.getTypeIndex().addImport(importDef);
+    }
 
-        for (Map.Entry<Location, FileNode> file : files.entrySet()) {
-            final NamespaceDef namespaceDef = projectDef.getNamespaces().get(file.getValue().getNamespace());
-            checkDecorators(namespaceDef.getFiles().get(file.getKey().getFileName()), file.getValue());
+    /**
+     * Runs the action for every file that has no problems found so far. If diagnostics are collected, problems found
+     * by the action are reported and the file is excluded from the further analysis. If statistics are collected, the
+     * time spent is added to the given phase.
+     */
+    private void forEachFile(ProjectDef projectDef, CancellationToken cancellationToken, List<SourceFile> sourceFiles,
+                             LoadPhase phase, DiagnosticCode code, FileAction action) {
+        final LoadStatistics statistics = this.statistics;
+        final LoadListener listener = this.listener;
+        final boolean isTimed = statistics != null || listener != LoadListener.NONE;
+        final long startTime = isTimed ? System.nanoTime() : 0;
+        int count = 0;
+        for (SourceFile sourceFile : sourceFiles) {
+            if (sourceFile.hasErrors)
+                continue;
+
+            cancellationToken.throwIfCancelled();
+            count += 1;
+            try {
+                action.run(sourceFile.fileDef, sourceFile.fileNode);
+            } catch (IllegalStateException | IllegalArgumentException exception) {
+                final Diagnostics diagnostics = this.diagnostics;
+                if (diagnostics == null || exception instanceof CancellationException && cancellationToken.isCancelled())
+                    throw exception;
+
+                diagnostics.add(new Diagnostic(sourceFile.location, 0, 0, code, String.valueOf(exception.getMessage())));
+                sourceFile.hasErrors = true;
+            }
         }
 
-        // Resolve all unresolved literals.
+        if (isTimed) {
+            final long time = System.nanoTime() - startTime;
+            if (statistics != null)
+                statistics.add(phase, time, count);
+            listener.phaseCompleted(projectDef, phase, time, count);
+        }
+    }
 
+    /**
+     * Returns all the files of the namespaces the given files belong to, in the order of namespaces.
+     */
+    private static List<SourceFile> getOrderedFiles(ProjectDef projectDef, List<SourceFile> sourceFiles) {
+        final Map<FileDef, SourceFile> fileDefs = new IdentityHashMap<>();
+        final Set<String> namespaces = new HashSet<>();
+        for (SourceFile sourceFile : sourceFiles) {
+            fileDefs.put(sourceFile.fileDef, sourceFile);
+            namespaces.add(sourceFile.fileNode.getNamespace());
+        }
+
+        final List<SourceFile> orderedFiles = new ArrayList<>(sourceFiles.size());
         for (NamespaceDef namespaceDef : projectDef.getNamespaces().values())
-            for (FileDef fileDef : namespaceDef.getFiles().values())
-                resolveLiterals(fileDef);
+            if (namespaces.contains(namespaceDef.getNamespace()))
+                for (FileDef fileDef : namespaceDef.getFiles().values())
+                    orderedFiles.add(fileDefs.get(fileDef));
+        return orderedFiles;
+    }
 
-        // TODO: Check that there is no cycles within inheritance graph.
+    private static IllegalStateException createDiagnosticsException(ProjectDef projectDef) {
+        return new IllegalStateException(projectDef.getDirectory() + ": project '" + projectDef.getFileName()
+            + "' contains errors, see diagnostics for details.");
+    }
 
-        for (NamespaceDef namespaceDef : projectDef.getNamespaces().values()) {
-            for (FileDef fileDef : namespaceDef.getFiles().values()) {
-                for (ClassDef classDef : fileDef.getDefinedClasses())
-                    checkInheritance(classDef);
+    /**
+     * Adds the error found while parsing the source file to diagnostics, if they are collected.
+     *
+     * @return true if the error has been reported.
+     */
+    private boolean reportSyntaxError(Location location, Exception exception) {
+        final Diagnostics diagnostics = this.diagnostics;
+        if (diagnostics == null)
+            return false;
 
-                for (InterfaceDef interfaceDef : fileDef.getDefinedInterfaces())
-                    checkInheritance(interfaceDef);
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SyntaxErrorException) {
+                final SyntaxErrorException syntaxError = (SyntaxErrorException) cause;
+                diagnostics.add(new Diagnostic(location, syntaxError.getLine(), syntaxError.getColumn(),
+                    DiagnosticCode.SYNTAX, syntaxError.getDescription()));
+                return true;
             }
         }
 
-        return projectDef;
+        if (!(exception instanceof IllegalStateException))
+            return false;
+        diagnostics.add(new Diagnostic(location, 0, 0, DiagnosticCode.SYNTAX, String.valueOf(exception.getMessage())));
+        return true;
     }
 
     private void resolveDecoratorValues(TypeScope scope, ItemDef itemDef) {
@@ -465,8 +1184,9 @@ public class ProjectLoader {
     }
 
     private void collectTypes(TypeScope parent, TypeContainerNode typeContainerNode, NamespaceDef namespaceDef) {
+        final TypeIndex index = parent.getFile().getTypeIndex();
         for (EnumerationNode enumerationNode : typeContainerNode.getDefinedEnumerations()) {
-            checkForTypeConflicts(parent, enumerationNode.getName());
+            checkForTypeConflicts(index, parent, enumerationNode.getName());
 
             final EnumerationDef enumerationDef = new EnumerationDef(parent, enumerationNode.getName(), extractUnderlyingType(enumerationNode.getUnderlyingType()), enumerationNode.getComments());
             for (EnumerationMemberNode enumerationMemberNode : enumerationNode.getMembers()) {
@@ -474,33 +1194,37 @@ public class ProjectLoader {
                 memberDef.setRawValue(enumerationMemberNode.getValue());
             }
 
+            index.addDefinedType(parent, enumerationDef.getType());
             collectType(namespaceDef, enumerationDef.getFullName(), enumerationDef.getType());
         }
         for (DecoratorNode decoratorNode : typeContainerNode.getDefinedDecorators()) {
-            checkForTypeConflicts(parent, decoratorNode.getName());
+            checkForTypeConflicts(index, parent, decoratorNode.getName());
 
             final DecoratorDef decoratorDef = new DecoratorDef(parent, decoratorNode.getName(), decoratorNode.getComments());
 
+            index.addDefinedType(parent, decoratorDef.getType());
             collectType(namespaceDef, decoratorDef.getFullName(), decoratorDef.getType());
 
             collectTypes(decoratorDef, decoratorNode, namespaceDef);
         }
         for (ClassNode classNode : typeContainerNode.getDefinedClasses()) {
-            checkForTypeConflicts(parent, classNode.getName());
+            checkForTypeConflicts(index, parent, classNode.getName());
 
             final ClassDef classDef = new ClassDef(parent, classNode.getName(), classNode.isFinal());
             if (classNode.getComments() != null)
                 classDef.getComments().addAll(classNode.getComments());
 
+            index.addDefinedType(parent, classDef.getType());
             collectType(namespaceDef, classDef.getFullName(), classDef.getType());
 
             collectTypes(classDef, classNode, namespaceDef);
         }
         for (InterfaceNode interfaceNode : typeContainerNode.getDefinedInterfaces()) {
-            checkForTypeConflicts(parent, interfaceNode.getName());
+            checkForTypeConflicts(index, parent, interfaceNode.getName());
 
             final InterfaceDef interfaceDef = new InterfaceDef(parent, interfaceNode.getName(), interfaceNode.getComments());
 
+            index.addDefinedType(parent, interfaceDef.getType());
             collectType(namespaceDef, interfaceDef.getFullName(), interfaceDef.getType());
 
             collectTypes(interfaceDef, interfaceNode, namespaceDef);
@@ -652,9 +1376,20 @@ public class ProjectLoader {
         buildTypeDefinitions(decoratorDef, decoratorNode);
     }
 
+    /**
+     * Returns supertypes without the ones repeated with the same text, in the order they are declared.
+     */
+    private static Collection<TypeReferenceNode> getDistinctTypes(List<TypeReferenceNode> types) {
+        final Map<String, TypeReferenceNode> distinctTypes = new LinkedHashMap<>();
+        for (TypeReferenceNode type : types)
+            if (!distinctTypes.containsKey(type.toString()))
+                distinctTypes.put(type.toString(), type);
+        return distinctTypes.values();
+    }
+
     private void checkInterfaceDefinition(InterfaceDef interfaceDef, InterfaceNode interfaceNode) {
         if (interfaceNode.getSupertypes() != null) {
-            for (String supertypeName : new HashSet<>(interfaceNode.getSupertypes())) {
+            for (TypeReferenceNode supertypeName : getDistinctTypes(interfaceNode.getSupertypes())) {
                 final Type supertype = resolveType(interfaceDef, supertypeName);
                 if (supertype.getKind() != TypeKind.INTERFACE)
                     throw new IllegalStateException("Type '" + supertype + "' must be either an interface.");
@@ -675,7 +1410,7 @@ public class ProjectLoader {
 
     private void checkClassDefinition(ClassDef classDef, ClassNode classNode) {
         if (classNode.getSupertypes() != null) {
-            for (String supertypeName : new HashSet<>(classNode.getSupertypes())) {
+            for (TypeReferenceNode supertypeName : getDistinctTypes(classNode.getSupertypes())) {
                 final Type supertype = resolveType(classDef, supertypeName);
                 if (supertype.getKind() != TypeKind.CLASS && supertype.getKind() != TypeKind.INTERFACE)
                     throw new IllegalStateException("Type '" + supertype + "' must be either a class or an interface.");
@@ -723,24 +1458,16 @@ public class ProjectLoader {
 
         final Set<TypeCustom> candidates = new HashSet<>();
         final FileDef fileDef = scope.getFile();
+        final TypeIndex index = fileDef.getTypeIndex();
 
         // Lookup definition in the current and all parent scopes.
 
         for (TypeScope currentScope = scope; currentScope != null; currentScope = currentScope.getParent()) {
-            for (ClassDef classDef : currentScope.getDefinedClasses())
-                if (classDef.getName().equals(name))
-                    candidates.add(classDef.getType());
-            for (InterfaceDef interfaceDef : currentScope.getDefinedInterfaces())
-                if (interfaceDef.getName().equals(name))
-                    candidates.add(interfaceDef.getType());
-            for (DecoratorDef decoratorDef : currentScope.getDefinedDecorators())
-                if (decoratorDef.getName().equals(name))
-                    candidates.add(decoratorDef.getType());
-            for (EnumerationDef enumerationDef : currentScope.getDefinedEnumerations())
-                if (enumerationDef.getName().equals(name))
-                    candidates.add(enumerationDef.getType());
-            if (!candidates.isEmpty())
+            final TypeCustom definedType = index.getDefinedType(currentScope, name);
+            if (definedType != null) {
+                candidates.add(definedType);
                 return candidates;
+            }
         }
 
         // Lookup type definition in the same namespace.
@@ -754,31 +1481,13 @@ public class ProjectLoader {
 
         // Prefer aliased types over regular imports.
 
-        for (ImportDef importDef : fileDef.getImports()) {
-            if (importDef.getKind() == ImportKind.TYPE) {
-                final ImportTypeDef typeImportDef = (ImportTypeDef) importDef;
-                if (name.equals(typeImportDef.getAlias()))
-                    candidates.add(typeImportDef.getTarget());
-            }
-        }
+        index.collectAliasedTypes(name, candidates);
         if (!candidates.isEmpty())
             return candidates;
 
         // Other import directives.
 
-        for (ImportDef importDef : fileDef.getImports()) {
-            if (importDef.getKind() == ImportKind.TYPE) {
-                final ImportTypeDef importTypeDef = (ImportTypeDef) importDef;
-                if (name.equals(importTypeDef.getTarget().getName()) && importTypeDef.getAlias() == null)
-                    candidates.add(importTypeDef.getTarget());
-            } else {
-                final ImportNamespaceDef importNamespaceDef = (ImportNamespaceDef) importDef;
-                final TypeCustom importedType = importNamespaceDef.getTarget().getDefinedTypes().get(name);
-                if (importedType != null)
-                    candidates.add(importedType);
-            }
-        }
-
+        index.collectImportedTypes(name, candidates);
         return candidates;
     }
 
@@ -787,46 +1496,24 @@ public class ProjectLoader {
 
         final Set<TypeCustom> candidates = new HashSet<>();
 
-        final int i = qualifiedName.lastIndexOf('.');
-        final String outerName = qualifiedName.substring(0, i);
-        final String typeName = qualifiedName.substring(i + 1);
-
-        // Case 1: `outerName` is the name of the type itself.
-
-        final Set<TypeCustom> parentCandidates = tryResolveCustomType(scope, outerName);
-        for (TypeCustom parent : parentCandidates) {
-            TypeScope parentScope;
-            if (parent.getKind() == TypeKind.CLASS)
-                parentScope = ((TypeClass) parent).getDefinition();
-            else if (parent.getKind() == TypeKind.DECORATOR)
-                parentScope = ((TypeDecorator) parent).getDefinition();
-            else if (parent.getKind() == TypeKind.INTERFACE)
-                parentScope = ((TypeInterface) parent).getDefinition();
-            else
-                continue;
+        // Case 1: the first name is the name of a type, the other names are names of nested types.
 
-            for (ClassDef classDef : parentScope.getDefinedClasses())
-                if (classDef.getName().equals(typeName))
-                    candidates.add(classDef.getType());
-            for (InterfaceDef interfaceDef : parentScope.getDefinedInterfaces())
-                if (interfaceDef.getName().equals(typeName))
-                    candidates.add(interfaceDef.getType());
-            for (DecoratorDef decoratorDef : parentScope.getDefinedDecorators())
-                if (decoratorDef.getName().equals(typeName))
-                    candidates.add(decoratorDef.getType());
-            for (EnumerationDef enumerationDef : parentScope.getDefinedEnumerations())
-                if (enumerationDef.getName().equals(typeName))
-                    candidates.add(enumerationDef.getType());
+        final int i = qualifiedName.indexOf('.');
+        for (TypeCustom outerType : tryResolveCustomTypeByName(scope, qualifiedName.substring(0, i))) {
+            final TypeCustom type = tryLookUpNestedType(outerType, qualifiedName, i + 1);
+            if (type != null)
+                candidates.add(type);
         }
 
-        // Case 2: `outerName` is the namespace in current project and/or referenced projects.
+        // Case 2: the name starts with the namespace in current project and/or referenced projects. Types nested into
+        // types of the namespace are indexed by their qualified names as well.
 
         final ProjectDef projectDef = scope.getFile().getNamespace().getProject();
-        TypeCustom type = tryLookUpType(projectDef, outerName, typeName);
+        TypeCustom type = projectDef.getQualifiedTypes().get(qualifiedName);
         if (type != null)
             candidates.add(type);
         for (ProjectDef referencedProjectDef : projectDef.getReferences().values()) {
-            type = tryLookUpType(referencedProjectDef, outerName, typeName);
+            type = referencedProjectDef.getQualifiedTypes().get(qualifiedName);
             if (type != null)
                 candidates.add(type);
         }
@@ -834,9 +1521,25 @@ public class ProjectLoader {
         return candidates;
     }
 
-    private static TypeCustom tryLookUpType(ProjectDef projectDef, String namespace, String name) {
-        final NamespaceDef namespaceDef = projectDef.getNamespaces().get(namespace);
-        return namespaceDef != null ? namespaceDef.getDefinedTypes().get(name) : null;
+    private static TypeCustom tryLookUpNestedType(TypeCustom type, String qualifiedName, int start) {
+        while (type != null && start < qualifiedName.length()) {
+            final TypeScope scope;
+            if (type.getKind() == TypeKind.CLASS)
+                scope = ((TypeClass) type).getDefinition();
+            else if (type.getKind() == TypeKind.DECORATOR)
+                scope = ((TypeDecorator) type).getDefinition();
+            else if (type.getKind() == TypeKind.INTERFACE)
+                scope = ((TypeInterface) type).getDefinition();
+            else
+                return null;
+
+            int end = qualifiedName.indexOf('.', start);
+            if (end < 0)
+                end = qualifiedName.length();
+            type = scope.getFile().getTypeIndex().getDefinedType(scope, qualifiedName.substring(start, end));
+            start = end + 1;
+        }
+        return type;
     }
 
     @NotNull
@@ -850,88 +1553,59 @@ public class ProjectLoader {
     }
 
     @NotNull
-    private List<Type> resolveTypeList(@NotNull TypeScope scope, @NotNull String nameList) {
-        int index = 0;
-        int angles = 0;
-
-        loop:
-        while (index < nameList.length()) {
-            final char c = nameList.charAt(index);
-            switch (c) {
-                case '<':
-                    angles += 1;
-                    break;
-
-                case '>':
-                    angles -= 1;
-                    break;
-
-                case ',':
-                    if (angles == 0)
-                        break loop;
-            }
-            index += 1;
-        }
+    private Type resolveType(@NotNull TypeScope scope, @NotNull TypeReferenceNode reference) {
+        if (reference.isNullable())
+            return types.intern(new TypeNullable(resolveType(scope, reference.getUnderlyingType())));
 
-        final Type type = resolveType(scope, nameList.substring(0, index));
-        if (index < nameList.length()) {
-            final List<Type> remainingTypes = resolveTypeList(scope, nameList.substring(index + 1));
-            remainingTypes.add(0, type);
-            return remainingTypes;
-        } else {
-            final List<Type> types = new ArrayList<>();
-            types.add(type);
-            return types;
-        }
-    }
-
-    @NotNull
-    private Type resolveType(@NotNull TypeScope scope, @NotNull String name) {
-        if (name.endsWith("?"))
-            return new TypeNullable(resolveType(scope, name.substring(0, name.length() - 1)));
+        if (reference.isGeneric()) {
+            final List<Type> typeList = new ArrayList<>(reference.getArguments().size());
+            for (TypeReferenceNode argument : reference.getArguments())
+                typeList.add(resolveType(scope, argument));
 
-        if (name.endsWith(">")) {
-            final int index = name.indexOf('<');
-            final String genericType = name.substring(0, index);
-            final String typeParameters = name.substring(index + 1, name.length() - 1);
-            final List<Type> typeList = resolveTypeList(scope, typeParameters);
-
-            switch (genericType) {
+            switch (reference.getName()) {
                 case "List":
                     if (typeList.size() != 1)
                         throw new IllegalStateException("List must have exactly one generic parameter.");
-                    return new TypeList(typeList.get(0));
+                    return types.intern(new TypeList(typeList.get(0)));
 
                 case "Set":
                     if (typeList.size() != 1)
                         throw new IllegalStateException("Set must have exactly one generic parameter.");
-                    return new TypeSet(typeList.get(0));
+                    return types.intern(new TypeSet(typeList.get(0)));
 
                 case "Map":
                     if (typeList.size() != 2)
                         throw new IllegalStateException("Map must have exactly two generic parameter.");
-                    return new TypeMap(typeList.get(0), typeList.get(1));
+                    return types.intern(new TypeMap(typeList.get(0), typeList.get(1)));
 
                 case "Action":
-                    return new TypeAction(typeList);
+                    return types.intern(new TypeAction(typeList));
 
                 case "Function":
                     if (typeList.size() < 1)
                         throw new IllegalStateException("Function must have at least one generic parameter.");
                     final Type returnType = typeList.remove(typeList.size() - 1);
-                    return new TypeFunction(typeList, returnType);
+                    return types.intern(new TypeFunction(typeList, returnType));
 
                 default:
-                    throw new IllegalStateException("Generic type '" + genericType + "' is not defined.");
+                    throw new IllegalStateException("Generic type '" + reference.getName() + "' is not defined.");
             }
         }
 
+        return resolveType(scope, reference.getName());
+    }
+
+    /**
+     * Resolves the type referenced by its simple or qualified name.
+     */
+    @NotNull
+    private Type resolveType(@NotNull TypeScope scope, @NotNull String name) {
         if (!name.contains(".")) {
             final Type type = PREDEFINED_TYPES.get(name);
             if (type != null)
                 return type;
             if (name.equals("Action"))
-                return new TypeAction();
+                return types.intern(new TypeAction());
         }
 
         return resolveCustomType(scope, name);
@@ -1057,8 +1731,8 @@ public class ProjectLoader {
         throw new IllegalStateException("Type '" + type + "' does not provide any constant definitions.");
     }
 
-    private LiteralType resolveTypeReference(TypeScope scope, String text) {
-        final Type type = resolveType(scope, text);
+    private LiteralType resolveTypeReference(TypeScope scope, TypeReferenceNode reference) {
+        final Type type = resolveType(scope, reference);
         return new LiteralType(type);
     }
 
@@ -1084,7 +1758,7 @@ public class ProjectLoader {
                 return resolveMemberReference(scope, literal.getValue());
 
             case TYPE:
-                return resolveTypeReference(scope, literal.getValue());
+                return resolveTypeReference(scope, literal.getType());
 
             default:
                 throw new IllegalStateException("Kind of unresolved literal is unknown.");
@@ -1298,11 +1972,58 @@ public class ProjectLoader {
         checkDecorators(interfaceDef, interfaceNode);
     }
 
-    private void accumulateInheritedProperties(String name, HashMap<String, ClassPropertyDef> properties,
-                                               ClassDef classDef) {
+    private void checkScopeInheritance(TypeScope scope) {
+        for (ClassDef classDef : scope.getDefinedClasses()) {
+            checkInheritance(classDef);
+            checkScopeInheritance(classDef);
+        }
+
+        for (InterfaceDef interfaceDef : scope.getDefinedInterfaces()) {
+            flattenProperties(interfaceDef, new LinkedHashSet<ClassOrInterfaceDef<?, ?>>());
+            checkScopeInheritance(interfaceDef);
+        }
+
+        for (DecoratorDef decoratorDef : scope.getDefinedDecorators())
+            checkScopeInheritance(decoratorDef);
+    }
+
+    private void checkInheritance(ClassDef classDef) {
+        final Map<String, ClassPropertyDef> classProperties = flattenProperties(classDef,
+            new LinkedHashSet<ClassOrInterfaceDef<?, ?>>());
+
+        for (InterfaceDef superInterfaceDef : classDef.getSuperInterfaces()) {
+            final Map<String, InterfacePropertyDef> interfaceProperties = flattenProperties(superInterfaceDef,
+                new LinkedHashSet<ClassOrInterfaceDef<?, ?>>());
+            for (InterfacePropertyDef interfacePropertyDef : interfaceProperties.values()) {
+                final ClassPropertyDef classPropertyDef = classProperties.get(interfacePropertyDef.getName());
+                if (classPropertyDef == null)
+                    throw new IllegalStateException("Class " + classDef.getFullName() + " does not contain property " +
+                        interfacePropertyDef.getName() + " inherited from the interface " +
+                        interfacePropertyDef.getOwner().getName());
+                if (!classPropertyDef.getType().equals(interfacePropertyDef.getType()))
+                    throw new IllegalStateException("Type of the property " + classDef.getFullName() + "." +
+                        classPropertyDef.getName() + " differs from the inherited " +
+                        interfacePropertyDef.getOwner().getName() + "." + interfacePropertyDef.getName());
+            }
+        }
+    }
+
+    /**
+     * Returns properties of the class together with the inherited ones, checking them once per class. Classes that
+     * are being flattened are kept in the path, so that a cycle is found when a class is reached again.
+     */
+    private Map<String, ClassPropertyDef> flattenProperties(ClassDef classDef, Set<ClassOrInterfaceDef<?, ?>> path) {
+        final Map<String, ClassPropertyDef> flattenedProperties = classDef.tryGetAllProperties();
+        if (flattenedProperties != null)
+            return flattenedProperties;
+        if (!path.add(classDef))
+            throw createInheritanceCycleException(classDef, path);
+
+        final Map<String, ClassPropertyDef> properties = new LinkedHashMap<>();
         if (classDef.getSuperClass() != null)
-            accumulateInheritedProperties(name, properties, classDef.getSuperClass());
+            properties.putAll(flattenProperties(classDef.getSuperClass(), path));
 
+        final String name = classDef.getFullName();
         for (ClassPropertyDef propertyDef : classDef.getProperties()) {
             ClassPropertyDef inheritedPropertyDef = properties.get(propertyDef.getName());
             if (inheritedPropertyDef != null) {
@@ -1314,52 +2035,35 @@ public class ProjectLoader {
                 throw new IllegalStateException("Property '" + propertyDef.getOwner().getFullName() + "." + propertyDef.getName() + "' does not override anything.");
             properties.put(propertyDef.getName(), propertyDef);
         }
-    }
-
-    private void checkInterfaceImplementation(String name, HashMap<String, ClassPropertyDef> classProperties,
-                                              InterfaceDef interfaceDef) {
-        for (InterfacePropertyDef interfacePropertyDef : interfaceDef.getProperties()) {
-            final ClassPropertyDef classPropertyDef = classProperties.get(interfacePropertyDef.getName());
-            if (classPropertyDef == null)
-                throw new IllegalStateException("Class " + name + " does not contain property " +
-                    interfacePropertyDef.getName() + " inherited from the interface " +
-                    interfacePropertyDef.getOwner().getName());
-            if (!classPropertyDef.getType().equals(interfacePropertyDef.getType()))
-                throw new IllegalStateException("Type of the property " + name + "." +
-                    classPropertyDef.getName() + " differs from the inherited " +
-                    interfacePropertyDef.getOwner().getName() + "." + interfacePropertyDef.getName());
-        }
-
-        for (InterfaceDef superInterfaceDef : interfaceDef.getSuperInterfaces())
-            checkInterfaceImplementation(name, classProperties, superInterfaceDef);
-    }
-
-    private void checkInheritance(ClassDef classDef) {
-        final HashMap<String, ClassPropertyDef> classProperties = new HashMap<>();
-        accumulateInheritedProperties(classDef.getFullName(), classProperties, classDef);
 
-        for (InterfaceDef superInterfaceDef : classDef.getSuperInterfaces())
-            checkInterfaceImplementation(classDef.getFullName(), classProperties, superInterfaceDef);
+        path.remove(classDef);
+        classDef.setAllProperties(properties);
+        return classDef.getAllProperties();
     }
 
-    private void accumulateInheritedProperties(String name, HashMap<String, InterfacePropertyDef> properties, InterfaceDef interfaceDef) {
-        for (InterfacePropertyDef property : interfaceDef.getProperties()) {
-            final InterfacePropertyDef existingProperty = properties.get(property.getName());
-            if (existingProperty != null && !existingProperty.getType().equals(property.getType()))
-                throw new IllegalStateException("Type " + name + " inherited property with name " + property.getName() +
-                    " twice: one from " + property.getOwner().getName() + " and one from " +
-                    existingProperty.getOwner().getName());
-
-            properties.put(property.getName(), property);
+    /**
+     * Returns properties of the interface together with the inherited ones, checking them once per interface.
+     */
+    private Map<String, InterfacePropertyDef> flattenProperties(InterfaceDef interfaceDef,
+                                                                Set<ClassOrInterfaceDef<?, ?>> path) {
+        final Map<String, InterfacePropertyDef> flattenedProperties = interfaceDef.tryGetAllProperties();
+        if (flattenedProperties != null)
+            return flattenedProperties;
+        if (!path.add(interfaceDef))
+            throw createInheritanceCycleException(interfaceDef, path);
+
+        final Map<String, InterfacePropertyDef> properties = new LinkedHashMap<>();
+        for (InterfaceDef superInterfaceDef : interfaceDef.getSuperInterfaces()) {
+            for (InterfacePropertyDef property : flattenProperties(superInterfaceDef, path).values()) {
+                final InterfacePropertyDef existingProperty = properties.get(property.getName());
+                if (existingProperty != null && !existingProperty.getType().equals(property.getType()))
+                    throw new IllegalStateException("Type " + interfaceDef.getName() + " inherited property with name " +
+                        property.getName() + " twice: one from " + property.getOwner().getName() + " and one from " +
+                        existingProperty.getOwner().getName());
+
+                properties.put(property.getName(), property);
+            }
         }
-        for (InterfaceDef superInterfaceDef : interfaceDef.getSuperInterfaces())
-            accumulateInheritedProperties(name, properties, superInterfaceDef);
-    }
-
-    private void checkInheritance(InterfaceDef interfaceDef) {
-        final HashMap<String, InterfacePropertyDef> properties = new HashMap<>();
-        for (InterfaceDef superInterfaceDef : interfaceDef.getSuperInterfaces())
-            accumulateInheritedProperties(interfaceDef.getName(), properties, superInterfaceDef);
 
         for (InterfacePropertyDef propertyDef : interfaceDef.getProperties()) {
             final InterfacePropertyDef inheritedPropertyDef = properties.get(propertyDef.getName());
@@ -1367,11 +2071,33 @@ public class ProjectLoader {
                 if (!propertyDef.isOverride())
                     throw new IllegalStateException("Property '" + propertyDef.getFullName() +
                         "' hides inherited property '" + inheritedPropertyDef.getFullName() + "'.");
+                if (!propertyDef.getType().equals(inheritedPropertyDef.getType()))
+                    throw new IllegalStateException("Type " + interfaceDef.getName() + " inherited property with name " +
+                        propertyDef.getName() + " twice: one from " + interfaceDef.getName() + " and one from " +
+                        inheritedPropertyDef.getOwner().getName());
             } else {
                 if (propertyDef.isOverride())
                     throw new IllegalStateException("'" + propertyDef.getFullName() + "': no suitable property found to override.");
             }
+            properties.put(propertyDef.getName(), propertyDef);
+        }
+
+        path.remove(interfaceDef);
+        interfaceDef.setAllProperties(properties);
+        return interfaceDef.getAllProperties();
+    }
+
+    private static IllegalStateException createInheritanceCycleException(ClassOrInterfaceDef<?, ?> typeDef,
+                                                                         Set<ClassOrInterfaceDef<?, ?>> path) {
+        final StringBuilder cycle = new StringBuilder();
+        boolean isInCycle = false;
+        for (ClassOrInterfaceDef<?, ?> pathDef : path) {
+            isInCycle |= pathDef == typeDef;
+            if (isInCycle)
+                cycle.append(pathDef.getFullName()).append(" -> ");
         }
+        return new IllegalStateException("Type '" + typeDef.getFullName() + "' inherits itself: " + cycle +
+            typeDef.getFullName() + ".");
     }
 
     private ConstantDef checkConstant(ConstantNode constantNode, ConstantAndTypeScope ownerDef) {
@@ -1402,22 +2128,12 @@ public class ProjectLoader {
         return null;
     }
 
-    private static void checkForTypeConflicts(TypeScope parent, String name) {
+    private static void checkForTypeConflicts(TypeIndex index, TypeScope parent, String name) {
         if (PREDEFINED_TYPES.containsKey(name))
             throw new IllegalStateException("Type name '" + name + "' conflicts with builtin type of the same name.");
 
-        for (EnumerationDef enumerationDef : parent.getDefinedEnumerations())
-            if (enumerationDef.getName().equals(name))
-                throw new IllegalStateException("Type name '" + name + "' is already defined within the current scope.");
-        for (ClassDef classDef : parent.getDefinedClasses())
-            if (classDef.getName().equals(name))
-                throw new IllegalStateException("Type name '" + name + "' is already defined within the current scope.");
-        for (InterfaceDef interfaceDef : parent.getDefinedInterfaces())
-            if (interfaceDef.getName().equals(name))
-                throw new IllegalStateException("Type name '" + name + "' is already defined within the current scope.");
-        for (DecoratorDef decoratorDef : parent.getDefinedDecorators())
-            if (decoratorDef.getName().equals(name))
-                throw new IllegalStateException("Type name '" + name + "' is already defined within the current scope.");
+        if (index.getDefinedType(parent, name) != null)
+            throw new IllegalStateException("Type name '" + name + "' is already defined within the current scope.");
 
         if (name.equals(getOuterTypeName(parent)))
             throw new IllegalStateException("Type name '" + name + "' conflicts with its outer type name.");
@@ -1436,35 +2152,211 @@ public class ProjectLoader {
 
         @Override
         public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) throws ParseCancellationException {
-            throw new ParseCancellationException("line " + line + ":" + charPositionInLine + ": " + msg);
+            throw new SyntaxErrorException(line, charPositionInLine, msg);
         }
     }
 
-    private static FileNode parseSourceFile(Location location) throws IOException {
-        final ANTLRInputStream input = new ANTLRInputStream(location.readAsStream());
-
-        final LuminaryLexer lexer = new LuminaryLexer(input);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(ThrowingErrorListener.INSTANCE);
+    /**
+     * Thrown when the source file contains a syntax error.
+     */
+    public static class SyntaxErrorException extends ParseCancellationException {
+        private static final long serialVersionUID = 1L;
+
+        private final int line;
+        private final int column;
+        private final String description;
+
+        public SyntaxErrorException(int line, int charPositionInLine, String description) {
+            super("line " + line + ":" + charPositionInLine + ": " + description);
+            this.line = line;
+            this.column = charPositionInLine + 1;
+            this.description = description;
+        }
 
-        final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        public int getLine() {
+            return line;
+        }
 
-        final LuminaryParser parser = new LuminaryParser(tokens);
-        parser.removeErrorListeners();
-        parser.addErrorListener(ThrowingErrorListener.INSTANCE);
+        /**
+         * Column of the error starting from 1.
+         *
+         * @return Column of the error.
+         */
+        public int getColumn() {
+            return column;
+        }
 
-        final ParseTree tree = parser.protocol();
-        final ParseTreeWalker walker = new ParseTreeWalker();
-        final LuminaryListenerImplementation visitor = new LuminaryListenerImplementation(tokens);
-        walker.walk(visitor, tree);
-        if (visitor.getNumberOfErrors() != 0)
-            throw new IllegalStateException("File '" + location + "' does not contain a valid protocol definition.");
+        public String getDescription() {
+            return description;
+        }
+    }
 
-        final FileNode fileNode = visitor.getFile();
-        fileNode.setLocation(location);
+    private FileNode parseSourceFile(Location location, byte[] content, CancellationToken cancellationToken)
+        throws IOException {
+        cancellationToken.throwIfCancelled();
+        final ParseCache cache = parseCache;
+        final LoadStatistics statistics = this.statistics;
+        final long startTime = statistics != null ? System.nanoTime() : 0;
+        final ParserSession session = ParserSession.get();
+        session.resetCounters();
+        session.setCancellationToken(cancellationToken);
+        final FileNode fileNode;
+        try {
+            if (content != null)
+                fileNode = cache != null ? cache.parse(location, content) : session.parse(location, content);
+            else
+                fileNode = cache != null ? cache.parse(location) : session.parse(location);
+        } finally {
+            session.setCancellationToken(CancellationToken.NONE);
+        }
+        if (statistics != null)
+            statistics.add(LoadPhase.PARSE, System.nanoTime() - startTime, 1);
+        listener.fileParsed(location, session.getCharacterCount(), session.getTokenCount());
         return fileNode;
     }
 
+    private static FileNode parseSourceHeader(Location location) throws IOException {
+        try {
+            return ParserSession.get().parseHeader(location);
+        } catch (ParseCancellationException exception) {
+            throw new IllegalStateException(location.toString() + ": failed to parse Luminary.", exception);
+        }
+    }
+
+    static String getPathNamespace(Pair<Location, Location> source) throws IOException {
+        return source.a.relativize(source.b.getParent()).replace('\\', '.').replace('/', '.');
+    }
+
+    private static void checkNamespace(Pair<Location, Location> source, FileNode fileNode) throws IOException {
+        // Make sure that source file's relative path matches with its namespace.
+        final String namespace = getPathNamespace(source);
+        if (!namespace.equals(fileNode.getNamespace()))
+            throw new IllegalStateException("File '" + source.a.relativize(source.b.getParent()) +
+                "' has invalid namespace: '" + namespace + "' is expected.");
+    }
+
+    private List<ListenableFuture<FileNode>> submitSourceFiles(ListeningExecutorService service,
+                                                               List<Pair<Location, Location>> sources,
+                                                               PendingProject pendingProject) throws IOException {
+        final CancellationToken cancellationToken = pendingProject.cancellationToken;
+        final Executor readExecutor = pendingProject.readExecutor;
+        final Location projectDirectory = pendingProject.projectFile.Path.getParent();
+        final List<ListenableFuture<FileNode>> parsedSources = new ArrayList<>(sources.size());
+        for (Pair<Location, Location> source : sources) {
+            final Location sourceFile = source.b;
+            listener.fileStarted(sourceFile, projectDirectory.relativize(sourceFile), pendingProject.level);
+            if (readExecutor == null) {
+                parsedSources.add(service.submit(new Callable<FileNode>() {
+                    @Override
+                    public FileNode call() throws Exception {
+                        return parseSourceFile(sourceFile, null, cancellationToken);
+                    }
+                }));
+                continue;
+            }
+
+            // The file is read on the read executor and is parsed on the executor of the loader once it is read.
+            final ListenableFutureTask<byte[]> content = ListenableFutureTask.create(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    cancellationToken.throwIfCancelled();
+                    return ParseCache.readContent(sourceFile);
+                }
+            });
+            readExecutor.execute(content);
+            parsedSources.add(Futures.transform(content, new Function<byte[], FileNode>() {
+                @Override
+                public FileNode apply(@NotNull byte[] bytes) {
+                    try {
+                        return parseSourceFile(sourceFile, bytes, cancellationToken);
+                    } catch (IOException exception) {
+                        throw new UncheckedExecutionException(exception);
+                    }
+                }
+            }, service));
+        }
+        return parsedSources;
+    }
+
+    private static void cancelParsing(List<? extends Future<FileNode>> parsedSources) {
+        for (Future<FileNode> parsedSource : parsedSources)
+            parsedSource.cancel(true);
+    }
+
+    private static <T> T getResult(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw exception;
+        } catch (ExecutionException exception) {
+            // Rethrow the original exception so the error is reported exactly as with sequential loading.
+            Throwable cause = exception.getCause();
+            if (cause instanceof UncheckedExecutionException && cause.getCause() instanceof Exception)
+                cause = cause.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw exception;
+        }
+    }
+
+    private static class PendingProject {
+        private final ProjectFile projectFile;
+        private final int level;
+        private final CancellationToken cancellationToken;
+        private final Map<String, Location> references = new LinkedHashMap<>();
+        private Executor readExecutor;
+        private List<Pair<Location, Location>> sources;
+        private List<ListenableFuture<FileNode>> parsedSources;
+        private boolean isPartial = false;
+
+        private PendingProject(ProjectFile projectFile, int level, CancellationToken cancellationToken) {
+            this.projectFile = projectFile;
+            this.level = level;
+            this.cancellationToken = cancellationToken;
+        }
+    }
+
+    /**
+     * Prints progress of loading projects to the standard output.
+     */
+    private static final class ConsoleListener extends LoadListener {
+        @Override
+        public void projectStarted(@NotNull Location location, int level) {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < level; i += 1)
+                builder.append("    ");
+            builder.append("Loading project file '").append(location).append("'...");
+            System.out.println(builder.toString());
+        }
+
+        @Override
+        public void fileStarted(@NotNull Location location, @NotNull String path, int level) {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < level; i += 1)
+                builder.append("    ");
+            builder.append("Loading source file '").append(path).append("'...");
+            System.out.println(builder.toString());
+        }
+    }
+
+    private static final class SourceFile {
+        private final Location location;
+        private final FileDef fileDef;
+        private final FileNode fileNode;
+        private boolean hasErrors = false;
+
+        private SourceFile(Location location, FileDef fileDef, FileNode fileNode) {
+            this.location = location;
+            this.fileDef = fileDef;
+            this.fileNode = fileNode;
+        }
+    }
+
+    private abstract static class FileAction {
+        abstract void run(FileDef fileDef, FileNode fileNode);
+    }
+
     private static IntegralType extractUnderlyingType(String text) {
         if ("Int64".equals(text))
             return IntegralType.INT64;
@@ -1572,7 +2464,40 @@ public class ProjectLoader {
         return usage != null ? usage : DecoratorUsage.byDefault();
     }
 
+    /**
+     * Enumerates source files of the loaded project as pairs of the source directory and the file.
+     */
+    List<Pair<Location, Location>> enumerateSources(ProjectDef projectDef) throws IOException {
+        final Location location = projectDef.getDirectory().resolve(projectDef.getFileName());
+        final ProjectFile projectFile;
+        try {
+            projectFile = parseProjectFile(location);
+        } catch (JsonParseException exception) {
+            throw new IllegalStateException(location.toString() + ": Failed to parse JSON.", exception);
+        }
+
+        projectFile.Path = location;
+        return enumerateSources(projectFile);
+    }
+
+    /**
+     * Parses the source file and checks that its namespace matches its path.
+     */
+    FileNode parseSource(Pair<Location, Location> source) throws IOException {
+        final FileNode fileNode;
+        try {
+            fileNode = parseSourceFile(source.b, null, CancellationToken.NONE);
+        } catch (IOException | RuntimeException exception) {
+            throw new IllegalStateException(source.b.toString() + ": failed to parse Luminary.", exception);
+        }
+
+        checkNamespace(source, fileNode);
+        return fileNode;
+    }
+
     private List<Pair<Location, Location>> enumerateSources(ProjectFile projectFile) throws IOException {
+        final LoadStatistics statistics = this.statistics;
+        final long startTime = statistics != null ? System.nanoTime() : 0;
         final List<Pair<Location, Location>> files = new ArrayList<>();
 
         for (int i = 0; i < projectFile.Sources.length; i += 1) {
@@ -1586,6 +2511,8 @@ public class ProjectLoader {
                     files.add(new Pair<>(location, file));
         }
 
+        if (statistics != null)
+            statistics.add(LoadPhase.ENUMERATE_SOURCES, System.nanoTime() - startTime, files.size());
         return files;
     }
 
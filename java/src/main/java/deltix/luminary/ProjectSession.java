@@ -0,0 +1,262 @@
+package deltix.luminary;
+
+import deltix.luminary.implementation.FileNode;
+import org.antlr.v4.runtime.misc.Pair;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Keeps the loaded project up to date with its source files. When some source files change, only namespaces these
+ * files belong to are built again, together with all the namespaces of the project and referenced projects that
+ * depend on them directly or indirectly. Definitions of other namespaces are not touched.
+ * <p>
+ * The project and referenced projects are updated in place. Namespaces that are built again are replaced with new
+ * {@link NamespaceDef} objects. The session keeps parsed source files, so unchanged files are parsed only the first
+ * time their namespace is built again, and it is recommended to set a {@link ParseCache} for the loader to speed this
+ * up. If the update fails, the project is left as it was before the update and the changed files are analyzed again
+ * by the next update.
+ * <p>
+ * The loader caches the projects it has loaded, including the ones the session updates. Other projects loaded by the
+ * same loader that reference them would keep pointing to the replaced namespaces, so the loader must not load other
+ * projects while the session is open: use a separate loader for every session, as {@link ProjectDaemon} does.
+ * <p>
+ * Sessions are not thread-safe and cannot be used with loaders that load referenced projects lazily.
+ */
+public class ProjectSession {
+    private final ProjectLoader loader;
+    private final ProjectDef projectDef;
+    // The project and all the projects it references, so that references precede the projects referencing them.
+    private final List<ProjectDef> projects = new ArrayList<>();
+    private final Map<ProjectDef, Map<Location, Pair<Location, Location>>> sources = new IdentityHashMap<>();
+    private final Map<NamespaceDef, Set<NamespaceDef>> dependencies = new IdentityHashMap<>();
+    // Parsed source files as of the last successful update, unless they have been changed since.
+    private final Map<Location, FileNode> fileNodes = new HashMap<>();
+    private final Set<Location> pendingFiles = new LinkedHashSet<>();
+    private List<NamespaceDef> updatedNamespaces = Collections.emptyList();
+
+    /**
+     * Initializes the new instance of @see ProjectSession.
+     *
+     * @param loader     Loader that loaded the project. It must not load other projects while the session is open.
+     * @param projectDef Loaded project.
+     * @throws IOException if source files of the project or referenced projects cannot be enumerated.
+     */
+    public ProjectSession(@NotNull ProjectLoader loader, @NotNull ProjectDef projectDef) throws IOException {
+        if (loader.isLazyReferences())
+            throw new IllegalArgumentException("Projects loaded with lazy references cannot be updated.");
+
+        this.loader = loader;
+        this.projectDef = projectDef;
+        collectProjects(projectDef, Collections.newSetFromMap(new IdentityHashMap<ProjectDef, Boolean>()));
+        for (ProjectDef project : projects)
+            sources.put(project, enumerateSources(project));
+    }
+
+    /**
+     * Loads the project and opens the session for it.
+     *
+     * @param loader   Loader to load the project with. It must not load other projects while the session is open.
+     * @param location Location of the project file.
+     * @return Opened session.
+     * @throws IOException When IO exception occurs while loading the project file or any of the source files.
+     */
+    public static ProjectSession open(@NotNull ProjectLoader loader, @NotNull Location location) throws IOException {
+        return new ProjectSession(loader, loader.load(location));
+    }
+
+    /**
+     * Project of this session.
+     *
+     * @return Project of this session.
+     */
+    @NotNull
+    public ProjectDef getProject() {
+        return projectDef;
+    }
+
+    /**
+     * Namespaces that have been built again by the last successful update.
+     *
+     * @return List of updated namespaces.
+     */
+    @NotNull
+    public List<NamespaceDef> getUpdatedNamespaces() {
+        return updatedNamespaces;
+    }
+
+    /**
+     * Analyzes changed source files of the project and referenced projects again. Added and removed source files are
+     * detected by enumerating sources of the projects, so they do not have to be passed.
+     *
+     * @param changedFiles Source files that have been changed, added or removed.
+     * @return Updated project.
+     * @throws IOException When IO exception occurs while reading project files or source files.
+     */
+    @NotNull
+    public ProjectDef update(@NotNull Collection<? extends Location> changedFiles) throws IOException {
+        pendingFiles.addAll(changedFiles);
+
+        // Find namespaces that contain changed, added or removed files.
+
+        final Map<ProjectDef, Map<Location, Pair<Location, Location>>> currentSources = new IdentityHashMap<>();
+        final Map<ProjectDef, Set<String>> affectedNamespaces = new IdentityHashMap<>();
+        final Set<NamespaceDef> affectedDefs = Collections.newSetFromMap(new IdentityHashMap<NamespaceDef, Boolean>());
+        for (ProjectDef project : projects) {
+            final Map<Location, Pair<Location, Location>> previous = sources.get(project);
+            final Map<Location, Pair<Location, Location>> current = enumerateSources(project);
+            currentSources.put(project, current);
+
+            final Set<String> namespaces = new HashSet<>();
+            for (Pair<Location, Location> source : current.values())
+                if (pendingFiles.contains(source.b) || !previous.containsKey(source.b))
+                    namespaces.add(ProjectLoader.getPathNamespace(source));
+            for (Pair<Location, Location> source : previous.values())
+                if (!current.containsKey(source.b))
+                    namespaces.add(ProjectLoader.getPathNamespace(source));
+
+            // Added or removed namespaces may change the way imports of any file are resolved.
+            final Set<String> previousNamespaces = getNamespaces(previous.values());
+            final Set<String> currentNamespaces = getNamespaces(current.values());
+            if (!previousNamespaces.equals(currentNamespaces)) {
+                namespaces.addAll(previousNamespaces);
+                namespaces.addAll(currentNamespaces);
+            }
+
+            affectedNamespaces.put(project, namespaces);
+            for (String namespace : namespaces) {
+                final NamespaceDef namespaceDef = project.getNamespaces().get(namespace);
+                if (namespaceDef != null)
+                    affectedDefs.add(namespaceDef);
+            }
+        }
+
+        // Add namespaces that depend on affected namespaces.
+
+        boolean changed = !affectedDefs.isEmpty();
+        while (changed) {
+            changed = false;
+            for (ProjectDef project : projects) {
+                for (NamespaceDef namespaceDef : project.getNamespaces().values()) {
+                    if (affectedDefs.contains(namespaceDef) || Collections.disjoint(getDependencies(namespaceDef), affectedDefs))
+                        continue;
+
+                    affectedDefs.add(namespaceDef);
+                    affectedNamespaces.get(project).add(namespaceDef.getNamespace());
+                    changed = true;
+                }
+            }
+        }
+
+        // Build affected namespaces in the order of projects.
+
+        final Map<ProjectDef, SortedMap<String, NamespaceDef>> backups = new IdentityHashMap<>();
+        final List<NamespaceDef> rebuiltNamespaces = new ArrayList<>();
+        final Map<Location, FileNode> parsedFiles = new HashMap<>();
+        try {
+            for (ProjectDef project : projects) {
+                final Set<String> namespaces = affectedNamespaces.get(project);
+                if (namespaces.isEmpty())
+                    continue;
+
+                backups.put(project, new TreeMap<>(project.getNamespaces()));
+                project.getNamespaces().keySet().removeAll(namespaces);
+
+                final Map<Location, FileNode> files = new LinkedHashMap<>();
+                for (Pair<Location, Location> source : currentSources.get(project).values()) {
+                    if (!namespaces.contains(ProjectLoader.getPathNamespace(source)))
+                        continue;
+
+                    FileNode fileNode = pendingFiles.contains(source.b) ? null : fileNodes.get(source.b);
+                    if (fileNode == null) {
+                        fileNode = loader.parseSource(source);
+                        parsedFiles.put(source.b, fileNode);
+                    }
+                    files.put(source.b, fileNode);
+                }
+
+                loader.analyzeFiles(project, files);
+                for (NamespaceDef namespaceDef : project.getNamespaces().values())
+                    if (namespaces.contains(namespaceDef.getNamespace()))
+                        rebuiltNamespaces.add(namespaceDef);
+            }
+        } catch (IOException | RuntimeException exception) {
+            for (Map.Entry<ProjectDef, SortedMap<String, NamespaceDef>> backup : backups.entrySet()) {
+                backup.getKey().getNamespaces().clear();
+                backup.getKey().getNamespaces().putAll(backup.getValue());
+                backup.getKey().invalidateQualifiedTypes();
+            }
+            throw exception;
+        }
+
+        sources.putAll(currentSources);
+        final Set<Location> currentFiles = new HashSet<>();
+        for (Map<Location, Pair<Location, Location>> current : currentSources.values())
+            currentFiles.addAll(current.keySet());
+        fileNodes.putAll(parsedFiles);
+        fileNodes.keySet().retainAll(currentFiles);
+        dependencies.keySet().removeAll(affectedDefs);
+        pendingFiles.clear();
+        updatedNamespaces = Collections.unmodifiableList(rebuiltNamespaces);
+        return projectDef;
+    }
+
+    /**
+     * Returns the project and all the projects it references, references first.
+     */
+    List<ProjectDef> getProjects() {
+        return Collections.unmodifiableList(projects);
+    }
+
+    /**
+     * Returns source directories of the project as of the last successful update.
+     */
+    Set<Location> getSourceDirectories(ProjectDef project) {
+        final Set<Location> directories = new LinkedHashSet<>();
+        for (Pair<Location, Location> source : sources.get(project).values())
+            directories.add(source.a);
+        return directories;
+    }
+
+    /**
+     * Returns source files of the project as of the last successful update.
+     */
+    Set<Location> getSourceFiles(ProjectDef project) {
+        return Collections.unmodifiableSet(sources.get(project).keySet());
+    }
+
+    private void collectProjects(ProjectDef project, Set<ProjectDef> visited) {
+        if (!visited.add(project))
+            return;
+        for (ProjectDef reference : project.getReferences().values())
+            collectProjects(reference, visited);
+        projects.add(project);
+    }
+
+    private Map<Location, Pair<Location, Location>> enumerateSources(ProjectDef project) throws IOException {
+        if (project.getDirectory() == null)
+            throw new IllegalArgumentException("Project '" + project.getFileName() + "' has no source directory.");
+
+        final Map<Location, Pair<Location, Location>> result = new LinkedHashMap<>();
+        for (Pair<Location, Location> source : loader.enumerateSources(project))
+            result.put(source.b, source);
+        return result;
+    }
+
+    private Set<NamespaceDef> getDependencies(NamespaceDef namespaceDef) {
+        Set<NamespaceDef> result = dependencies.get(namespaceDef);
+        if (result == null) {
+            result = NamespaceDependencies.collect(namespaceDef);
+            dependencies.put(namespaceDef, result);
+        }
+        return result;
+    }
+
+    private static Set<String> getNamespaces(Collection<Pair<Location, Location>> sources) throws IOException {
+        final Set<String> namespaces = new HashSet<>();
+        for (Pair<Location, Location> source : sources)
+            namespaces.add(ProjectLoader.getPathNamespace(source));
+        return namespaces;
+    }
+}
@@ -0,0 +1,1057 @@
+package deltix.luminary;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import deltix.luminary.implementation.FileNodeSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compact binary snapshot of the loaded project together with all the projects it references. Loading the snapshot
+ * is much faster than loading the project from source files, since it is a single sequential read that involves no
+ * parsing and no validation.
+ * <p>
+ * Projects, namespaces and definitions are identified by integer ids given in the order they are written. Every
+ * project is written in three passes: first its namespaces, files and type definitions, then the enumeration members,
+ * decorator properties and constants (since literals refer to them), and then everything else. Thus every reference
+ * points to an object that has already been read. Referenced projects precede the projects that reference them.
+ * Builtin types (e.g. {@code DecoratorUsage}) and constants of primitive types are not written but have reserved
+ * ids.
+ * <p>
+ * Only file system directories of projects are kept, directories within archives are restored as {@code null}.
+ */
+public final class ProjectSnapshot {
+    private static final int MAGIC = 0x4C555853; // "LUXS"
+    private static final int FORMAT_VERSION = 3;
+    // Scopes of constants of primitive types, e.g. UInt32.MAX_VALUE. New scopes may only be added to the end.
+    private static final ConstantScope[] PRIMITIVE_CONSTANT_SCOPES = {
+        Int8Def.INSTANCE, Int16Def.INSTANCE, Int32Def.INSTANCE, Int64Def.INSTANCE,
+        UInt8Def.INSTANCE, UInt16Def.INSTANCE, UInt32Def.INSTANCE, UInt64Def.INSTANCE,
+        Float32Def.INSTANCE, Float64Def.INSTANCE, DecimalDef.INSTANCE,
+        TimestampDef.INSTANCE, DurationDef.INSTANCE, DateDef.INSTANCE, TimeDef.INSTANCE, UUIDDef.INSTANCE
+    };
+
+    private ProjectSnapshot() {
+    }
+
+    /**
+     * Writes the snapshot of the project to the file.
+     *
+     * @param projectDef Project to write.
+     * @param file       File to write the snapshot to.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void save(ProjectDef projectDef, Path file) throws IOException {
+        try (OutputStream output = Files.newOutputStream(file)) {
+            write(projectDef, output);
+        }
+    }
+
+    /**
+     * Reads the project from the snapshot file.
+     *
+     * @param file File that contains the snapshot.
+     * @return Loaded project.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public static ProjectDef load(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return read(input);
+        }
+    }
+
+    /**
+     * Writes the snapshot of the project to the stream. The stream is not closed.
+     *
+     * @param projectDef Project to write.
+     * @param stream     Stream to write the snapshot to.
+     * @throws IOException if the stream cannot be written.
+     */
+    public static void write(ProjectDef projectDef, OutputStream stream) throws IOException {
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        new Writer(output).writeProjects(projectDef);
+        output.flush();
+    }
+
+    /**
+     * Reads the project from the snapshot stream. The stream is not closed.
+     *
+     * @param stream Stream that contains the snapshot.
+     * @return Loaded project.
+     * @throws IOException if the stream cannot be read or does not contain a valid snapshot.
+     */
+    public static ProjectDef read(InputStream stream) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (input.readInt() != MAGIC)
+            throw new IOException("Stream does not contain a project snapshot.");
+        final int version = input.readInt();
+        if (version != FORMAT_VERSION)
+            throw new IOException("Version of the project snapshot is not supported: " + version + ".");
+
+        try {
+            return new Reader(input).readProjects();
+        } catch (ClassCastException | IndexOutOfBoundsException exception) {
+            throw new IOException("Project snapshot is corrupted.", exception);
+        }
+    }
+
+    /**
+     * Lists the builtin objects that may be referenced by loaded projects, in the order of their reserved ids.
+     */
+    private static List<Object> getBuiltinObjects() {
+        final List<Object> objects = new ArrayList<>();
+        // The builtin file may list the same definition twice, so duplicates are skipped.
+        final Set<Object> registered = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        addBuiltinObjects(ProjectLoader.getBuiltinFile(), objects, registered);
+        for (ConstantScope scope : PRIMITIVE_CONSTANT_SCOPES)
+            for (ConstantDef constantDef : scope.getDefinedConstants())
+                addBuiltinObject(constantDef, objects, registered);
+        return objects;
+    }
+
+    private static void addBuiltinObjects(TypeScope scope, List<Object> objects, Set<Object> registered) {
+        for (EnumerationDef enumerationDef : scope.getDefinedEnumerations()) {
+            addBuiltinObject(enumerationDef, objects, registered);
+            for (EnumerationMemberDef memberDef : enumerationDef.getMembers())
+                addBuiltinObject(memberDef, objects, registered);
+        }
+        for (ClassDef classDef : scope.getDefinedClasses()) {
+            addBuiltinObject(classDef, objects, registered);
+            for (ConstantDef constantDef : classDef.getDefinedConstants())
+                addBuiltinObject(constantDef, objects, registered);
+            addBuiltinObjects(classDef, objects, registered);
+        }
+        for (InterfaceDef interfaceDef : scope.getDefinedInterfaces()) {
+            addBuiltinObject(interfaceDef, objects, registered);
+            addBuiltinObjects(interfaceDef, objects, registered);
+        }
+        for (DecoratorDef decoratorDef : scope.getDefinedDecorators()) {
+            addBuiltinObject(decoratorDef, objects, registered);
+            for (DecoratorPropertyDef propertyDef : decoratorDef.getProperties())
+                addBuiltinObject(propertyDef, objects, registered);
+            for (ConstantDef constantDef : decoratorDef.getDefinedConstants())
+                addBuiltinObject(constantDef, objects, registered);
+            addBuiltinObjects(decoratorDef, objects, registered);
+        }
+    }
+
+    private static void addBuiltinObject(Object object, List<Object> objects, Set<Object> registered) {
+        if (object != null && registered.add(object))
+            objects.add(object);
+    }
+
+    private static ItemDef getDefinition(TypeCustom type) {
+        switch (type.getKind()) {
+            case ENUMERATION:
+                return ((TypeEnumeration) type).getDefinition();
+            case CLASS:
+                return ((TypeClass) type).getDefinition();
+            case INTERFACE:
+                return ((TypeInterface) type).getDefinition();
+            case DECORATOR:
+                return ((TypeDecorator) type).getDefinition();
+            default:
+                throw new IllegalStateException("Type '" + type + "' is not a custom type.");
+        }
+    }
+
+    private static final class Writer {
+        private final DataOutputStream output;
+        private final Map<Object, Integer> ids = new IdentityHashMap<>();
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private Writer(DataOutputStream output) {
+            this.output = output;
+            for (Object object : getBuiltinObjects())
+                register(object);
+        }
+
+        private void writeProjects(ProjectDef projectDef) throws IOException {
+            final List<ProjectDef> projects = new ArrayList<>();
+            collectProjects(projectDef, projects);
+            writeSize(projects.size());
+            for (ProjectDef project : projects)
+                writeProject(project);
+        }
+
+        private void collectProjects(ProjectDef projectDef, List<ProjectDef> projects) {
+            if (projects.contains(projectDef))
+                return;
+            for (ProjectDef reference : projectDef.getReferences().values())
+                collectProjects(reference, projects);
+            projects.add(projectDef);
+        }
+
+        private void writeProject(ProjectDef projectDef) throws IOException {
+            register(projectDef);
+            final Location directory = projectDef.getDirectory();
+            writeString(directory instanceof FileSystemLocation ? directory.toString() : null);
+            writeString(projectDef.getFileName());
+            writeSize(projectDef.getReferences().size());
+            for (Map.Entry<String, ProjectDef> reference : projectDef.getReferences().entrySet()) {
+                writeString(reference.getKey());
+                writeId(reference.getValue());
+            }
+
+            writeSize(projectDef.getNamespaces().size());
+            for (NamespaceDef namespaceDef : projectDef.getNamespaces().values()) {
+                register(namespaceDef);
+                writeString(namespaceDef.getNamespace());
+                writeSize(namespaceDef.getFiles().size());
+                for (FileDef fileDef : namespaceDef.getFiles().values()) {
+                    writeString(fileDef.getFileName());
+                    writeTypes(fileDef);
+                }
+                writeSize(namespaceDef.getDefinedTypes().size());
+                for (Map.Entry<String, TypeCustom> type : namespaceDef.getDefinedTypes().entrySet()) {
+                    writeString(type.getKey());
+                    writeId(getDefinition(type.getValue()));
+                }
+            }
+
+            for (NamespaceDef namespaceDef : projectDef.getNamespaces().values())
+                for (FileDef fileDef : namespaceDef.getFiles().values())
+                    writeMembers(fileDef);
+
+            for (NamespaceDef namespaceDef : projectDef.getNamespaces().values())
+                for (FileDef fileDef : namespaceDef.getFiles().values())
+                    writeFile(fileDef);
+        }
+
+        private void writeTypes(TypeScope scope) throws IOException {
+            writeSize(scope.getDefinedEnumerations().size());
+            for (EnumerationDef enumerationDef : scope.getDefinedEnumerations()) {
+                register(enumerationDef);
+                writeString(enumerationDef.getName());
+                writeStrings(enumerationDef.getComments());
+                output.writeByte(enumerationDef.getUnderlyingType().ordinal());
+            }
+
+            writeSize(scope.getDefinedClasses().size());
+            for (ClassDef classDef : scope.getDefinedClasses()) {
+                register(classDef);
+                writeString(classDef.getName());
+                writeStrings(classDef.getComments());
+                output.writeBoolean(classDef.isFinal());
+                writeTypes(classDef);
+            }
+
+            writeSize(scope.getDefinedInterfaces().size());
+            for (InterfaceDef interfaceDef : scope.getDefinedInterfaces()) {
+                register(interfaceDef);
+                writeString(interfaceDef.getName());
+                writeStrings(interfaceDef.getComments());
+                writeTypes(interfaceDef);
+            }
+
+            writeSize(scope.getDefinedDecorators().size());
+            for (DecoratorDef decoratorDef : scope.getDefinedDecorators()) {
+                register(decoratorDef);
+                writeString(decoratorDef.getName());
+                writeStrings(decoratorDef.getComments());
+                writeTypes(decoratorDef);
+            }
+        }
+
+        private void writeMembers(TypeScope scope) throws IOException {
+            for (EnumerationDef enumerationDef : scope.getDefinedEnumerations()) {
+                writeSize(enumerationDef.getMembers().size());
+                for (EnumerationMemberDef memberDef : enumerationDef.getMembers()) {
+                    register(memberDef);
+                    writeString(memberDef.getName());
+                    writeStrings(memberDef.getComments());
+                    writeLiteral(memberDef.getValue());
+                }
+            }
+
+            for (ClassDef classDef : scope.getDefinedClasses()) {
+                writeConstantDeclarations(classDef.getDefinedConstants());
+                writeMembers(classDef);
+            }
+
+            for (InterfaceDef interfaceDef : scope.getDefinedInterfaces())
+                writeMembers(interfaceDef);
+
+            for (DecoratorDef decoratorDef : scope.getDefinedDecorators()) {
+                writeSize(decoratorDef.getProperties().size());
+                for (DecoratorPropertyDef propertyDef : decoratorDef.getProperties()) {
+                    register(propertyDef);
+                    writeString(propertyDef.getName());
+                    writeStrings(propertyDef.getComments());
+                    writeType(propertyDef.getType());
+                }
+                writeConstantDeclarations(decoratorDef.getDefinedConstants());
+                writeMembers(decoratorDef);
+            }
+        }
+
+        private void writeConstantDeclarations(List<ConstantDef> constantDefs) throws IOException {
+            writeSize(constantDefs.size());
+            for (ConstantDef constantDef : constantDefs) {
+                register(constantDef);
+                writeString(constantDef.getName());
+                writeStrings(constantDef.getComments());
+                writeType(constantDef.getType());
+            }
+        }
+
+        private void writeFile(FileDef fileDef) throws IOException {
+            writeSize(fileDef.getImports().size());
+            for (ImportDef importDef : fileDef.getImports()) {
+                switch (importDef.getKind()) {
+                    case NAMESPACE:
+                        output.writeByte(ImportKind.NAMESPACE.getNumber());
+                        writeId(((ImportNamespaceDef) importDef).getTarget());
+                        break;
+
+                    case TYPE:
+                        final ImportTypeDef importTypeDef = (ImportTypeDef) importDef;
+                        output.writeByte(ImportKind.TYPE.getNumber());
+                        writeId(getDefinition(importTypeDef.getTarget()));
+                        writeString(importTypeDef.getAlias());
+                        break;
+
+                    default:
+                        throw new IllegalArgumentException("Type of import directive is unknown: " + importDef.getKind());
+                }
+            }
+            // Options are kept exactly as they were parsed.
+            FileNodeSerializer.writeArguments(output, fileDef.getOptions());
+            writeContents(fileDef);
+        }
+
+        private void writeContents(TypeScope scope) throws IOException {
+            for (EnumerationDef enumerationDef : scope.getDefinedEnumerations()) {
+                writeDecorators(enumerationDef);
+                for (EnumerationMemberDef memberDef : enumerationDef.getMembers()) {
+                    writeDecorators(memberDef);
+                    writeLiteral(memberDef.getRawValue());
+                }
+            }
+
+            for (ClassDef classDef : scope.getDefinedClasses()) {
+                writeDecorators(classDef);
+                writeId(classDef.getSuperClass());
+                writeIds(classDef.getSuperInterfaces());
+                writeSize(classDef.getProperties().size());
+                for (ClassPropertyDef propertyDef : classDef.getProperties()) {
+                    writeString(propertyDef.getName());
+                    writeStrings(propertyDef.getComments());
+                    writeDecorators(propertyDef);
+                    writeType(propertyDef.getType());
+                    writeLiteral(propertyDef.getDefault());
+                    output.writeBoolean(propertyDef.isOverride());
+                    output.writeBoolean(propertyDef.isFinal());
+                }
+                writeConstantValues(classDef.getDefinedConstants());
+                writeContents(classDef);
+            }
+
+            for (InterfaceDef interfaceDef : scope.getDefinedInterfaces()) {
+                writeDecorators(interfaceDef);
+                writeIds(interfaceDef.getSuperInterfaces());
+                writeSize(interfaceDef.getProperties().size());
+                for (InterfacePropertyDef propertyDef : interfaceDef.getProperties()) {
+                    writeString(propertyDef.getName());
+                    writeStrings(propertyDef.getComments());
+                    writeDecorators(propertyDef);
+                    writeType(propertyDef.getType());
+                    output.writeBoolean(propertyDef.isOverride());
+                    output.writeBoolean(propertyDef.isReadable());
+                    output.writeBoolean(propertyDef.isWritable());
+                }
+                writeSize(interfaceDef.getMethods().size());
+                for (InterfaceMethodDef methodDef : interfaceDef.getMethods()) {
+                    writeString(methodDef.getName());
+                    writeStrings(methodDef.getComments());
+                    writeDecorators(methodDef);
+                    writeType(methodDef.getReturnType());
+                    writeSize(methodDef.getFormalParameters().size());
+                    for (FormalParameterDef parameterDef : methodDef.getFormalParameters()) {
+                        writeString(parameterDef.getName());
+                        writeStrings(parameterDef.getComments());
+                        writeDecorators(parameterDef);
+                        writeType(parameterDef.getType());
+                        output.writeBoolean(parameterDef.isParameterArray());
+                    }
+                }
+                writeContents(interfaceDef);
+            }
+
+            for (DecoratorDef decoratorDef : scope.getDefinedDecorators()) {
+                writeDecorators(decoratorDef);
+                for (DecoratorPropertyDef propertyDef : decoratorDef.getProperties()) {
+                    writeDecorators(propertyDef);
+                    writeLiteral(propertyDef.getDefault());
+                }
+                writeConstantValues(decoratorDef.getDefinedConstants());
+                writeContents(decoratorDef);
+            }
+        }
+
+        private void writeConstantValues(List<ConstantDef> constantDefs) throws IOException {
+            for (ConstantDef constantDef : constantDefs) {
+                writeDecorators(constantDef);
+                writeLiteral(constantDef.getValue());
+            }
+        }
+
+        private void writeDecorators(ItemDef itemDef) throws IOException {
+            writeSize(itemDef.getDecorators().size());
+            for (Decorator decorator : itemDef.getDecorators()) {
+                writeId(decorator.getDefinition());
+                writeSize(decorator.getArguments().size());
+                for (DecoratorPropertyValue argument : decorator.getArguments()) {
+                    writeId(argument.getDefinition());
+                    // Default values are shared with the definition, so they are restored from it.
+                    output.writeBoolean(argument.isDefault());
+                    if (!argument.isDefault())
+                        writeLiteral(argument.getValue());
+                }
+            }
+        }
+
+        private void writeType(Type type) throws IOException {
+            if (type == null) {
+                writeSize(0);
+                return;
+            }
+
+            writeSize(type.getKind().ordinal() + 1);
+            switch (type.getKind()) {
+                case NULLABLE:
+                    writeType(((TypeNullable) type).getUnderlyingType());
+                    break;
+                case LIST:
+                    writeType(((TypeList) type).getUnderlyingType());
+                    break;
+                case SET:
+                    writeType(((TypeSet) type).getUnderlyingType());
+                    break;
+                case MAP:
+                    writeType(((TypeMap) type).getKeyType());
+                    writeType(((TypeMap) type).getValueType());
+                    break;
+                case ACTION:
+                    writeTypes(((TypeAction) type).getArgumentTypes());
+                    break;
+                case FUNCTION:
+                    writeTypes(((TypeFunction) type).getArgumentTypes());
+                    writeType(((TypeFunction) type).getReturnType());
+                    break;
+                case ENUMERATION:
+                case CLASS:
+                case INTERFACE:
+                case DECORATOR:
+                    writeId(getDefinition((TypeCustom) type));
+                    break;
+                default:
+                    // Primitive types are identified by their kinds.
+                    break;
+            }
+        }
+
+        private void writeTypes(List<Type> types) throws IOException {
+            writeSize(types.size());
+            for (Type type : types)
+                writeType(type);
+        }
+
+        private void writeLiteral(Literal literal) throws IOException {
+            if (literal == null) {
+                writeSize(0);
+                return;
+            }
+
+            writeSize(literal.getKind().ordinal() + 1);
+            switch (literal.getKind()) {
+                case TYPE:
+                    writeType(((LiteralType) literal).getValue());
+                    break;
+                case BOOLEAN:
+                    output.writeBoolean(((LiteralBoolean) literal).getValue());
+                    break;
+                case TEXT:
+                    writeString(((LiteralText) literal).getValue());
+                    break;
+                case INT8:
+                    output.writeByte(((LiteralInt8) literal).getValue());
+                    break;
+                case UINT8:
+                    output.writeByte(((LiteralUInt8) literal).getValue());
+                    break;
+                case INT16:
+                    output.writeShort(((LiteralInt16) literal).getValue());
+                    break;
+                case UINT16:
+                    output.writeShort(((LiteralUInt16) literal).getValue());
+                    break;
+                case INT32:
+                    output.writeInt(((LiteralInt32) literal).getValue());
+                    break;
+                case UINT32:
+                    output.writeInt(((LiteralUInt32) literal).getValue());
+                    break;
+                case INT64:
+                    output.writeLong(((LiteralInt64) literal).getValue());
+                    break;
+                case UINT64:
+                    output.writeLong(((LiteralUInt64) literal).getValue());
+                    break;
+                case FLOAT32:
+                    output.writeFloat(((LiteralFloat32) literal).getValue());
+                    break;
+                case FLOAT64:
+                    output.writeDouble(((LiteralFloat64) literal).getValue());
+                    break;
+                case DECIMAL:
+                    output.writeLong(((LiteralDecimal) literal).getValue());
+                    break;
+                case TIMESTAMP:
+                    writeString(((LiteralTimestamp) literal).getValue());
+                    break;
+                case DATE:
+                    writeString(((LiteralDate) literal).getValue());
+                    break;
+                case TIME:
+                    writeString(((LiteralTime) literal).getValue());
+                    break;
+                case DURATION:
+                    writeString(((LiteralDuration) literal).getValue());
+                    break;
+                case UUID:
+                    output.writeLong(((LiteralUUID) literal).getValue().getMostSignificantBits());
+                    output.writeLong(((LiteralUUID) literal).getValue().getLeastSignificantBits());
+                    break;
+                case NULL:
+                    break;
+                case ENUMERATION_VALUE:
+                    writeId(((LiteralEnumerationValue) literal).getValue());
+                    break;
+                case CONSTANT:
+                    writeId(((LiteralConstant) literal).getValue());
+                    break;
+                case LIST:
+                    final List<Literal> items = ((LiteralList) literal).getValue();
+                    writeSize(items.size());
+                    for (Literal item : items)
+                        writeLiteral(item);
+                    break;
+                default:
+                    throw new IllegalStateException("Literal of kind '" + literal.getKind() + "' cannot be written.");
+            }
+        }
+
+        private void register(Object object) {
+            ids.put(object, ids.size());
+        }
+
+        private void writeId(Object object) throws IOException {
+            if (object == null) {
+                writeSize(0);
+                return;
+            }
+
+            final Integer id = ids.get(object);
+            if (id == null)
+                throw new IllegalStateException("Object '" + object + "' does not belong to the written projects.");
+            writeSize(id + 1);
+        }
+
+        private void writeIds(List<?> objects) throws IOException {
+            writeSize(objects.size());
+            for (Object object : objects)
+                writeId(object);
+        }
+
+        private void writeStrings(List<String> values) throws IOException {
+            writeSize(values.size());
+            for (String value : values)
+                writeString(value);
+        }
+
+        /**
+         * Writes the string, or the index of the string if it has already been written.
+         */
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeSize(0);
+                return;
+            }
+
+            final Integer index = strings.get(value);
+            if (index != null) {
+                writeSize(index + 2);
+                return;
+            }
+
+            strings.put(value, strings.size());
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeSize(1);
+            writeSize(bytes.length);
+            output.write(bytes);
+        }
+
+        private void writeSize(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                output.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            output.writeByte(value);
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream input;
+        private final List<Object> objects;
+        private final List<String> strings = new ArrayList<>();
+        private final Interner<Type> types = Interners.newStrongInterner();
+        private final List<DecoratorPropertyValue> defaultArguments = new ArrayList<>();
+
+        private Reader(DataInputStream input) {
+            this.input = input;
+            this.objects = getBuiltinObjects();
+        }
+
+        private ProjectDef readProjects() throws IOException {
+            ProjectDef projectDef = null;
+            for (int i = readSize(); i > 0; i -= 1)
+                projectDef = readProject();
+            if (projectDef == null)
+                throw new IOException("Project snapshot is empty.");
+            return projectDef;
+        }
+
+        private ProjectDef readProject() throws IOException {
+            final String directory = readString();
+            final ProjectDef projectDef = new ProjectDef(
+                directory != null ? new FileSystemLocation(Paths.get(directory)) : null, readString());
+            objects.add(projectDef);
+            for (int i = readSize(); i > 0; i -= 1) {
+                final String name = readString();
+                projectDef.getReferences().put(name, readId(ProjectDef.class));
+            }
+
+            for (int i = readSize(); i > 0; i -= 1) {
+                final NamespaceDef namespaceDef = new NamespaceDef(projectDef, readString());
+                objects.add(namespaceDef);
+                for (int j = readSize(); j > 0; j -= 1)
+                    readTypes(new FileDef(namespaceDef, readString()));
+                for (int j = readSize(); j > 0; j -= 1) {
+                    final String name = readString();
+                    namespaceDef.getDefinedTypes().put(name, (TypeCustom) readId(TypeDef.class).getType());
+                }
+            }
+
+            for (NamespaceDef namespaceDef : projectDef.getNamespaces().values())
+                for (FileDef fileDef : namespaceDef.getFiles().values())
+                    readMembers(fileDef);
+
+            for (NamespaceDef namespaceDef : projectDef.getNamespaces().values())
+                for (FileDef fileDef : namespaceDef.getFiles().values())
+                    readFile(fileDef);
+
+            for (DecoratorPropertyValue argument : defaultArguments)
+                argument.setValue(argument.getDefinition().getDefault());
+            defaultArguments.clear();
+            return projectDef;
+        }
+
+        private void readTypes(TypeScope scope) throws IOException {
+            for (int i = readSize(); i > 0; i -= 1) {
+                final String name = readString();
+                final List<String> comments = readStrings();
+                final IntegralType underlyingType = IntegralType.values()[input.readByte()];
+                objects.add(new EnumerationDef(scope, name, underlyingType, comments));
+            }
+
+            for (int i = readSize(); i > 0; i -= 1) {
+                final String name = readString();
+                final List<String> comments = readStrings();
+                final ClassDef classDef = new ClassDef(scope, name, input.readBoolean(), comments);
+                objects.add(classDef);
+                readTypes(classDef);
+            }
+
+            for (int i = readSize(); i > 0; i -= 1) {
+                final String name = readString();
+                final InterfaceDef interfaceDef = new InterfaceDef(scope, name, readStrings());
+                objects.add(interfaceDef);
+                readTypes(interfaceDef);
+            }
+
+            for (int i = readSize(); i > 0; i -= 1) {
+                final String name = readString();
+                final DecoratorDef decoratorDef = new DecoratorDef(scope, name, readStrings());
+                objects.add(decoratorDef);
+                readTypes(decoratorDef);
+            }
+        }
+
+        private void readMembers(TypeScope scope) throws IOException {
+            for (EnumerationDef enumerationDef : scope.getDefinedEnumerations()) {
+                for (int i = readSize(); i > 0; i -= 1) {
+                    final String name = readString();
+                    final List<String> comments = readStrings();
+                    final LiteralInteger value = (LiteralInteger) readLiteral();
+                    objects.add(new EnumerationMemberDef(enumerationDef, name, value, comments));
+                }
+            }
+
+            for (ClassDef classDef : scope.getDefinedClasses()) {
+                readConstantDeclarations(classDef);
+                readMembers(classDef);
+            }
+
+            for (InterfaceDef interfaceDef : scope.getDefinedInterfaces())
+                readMembers(interfaceDef);
+
+            for (DecoratorDef decoratorDef : scope.getDefinedDecorators()) {
+                for (int i = readSize(); i > 0; i -= 1) {
+                    final String name = readString();
+                    final List<String> comments = readStrings();
+                    objects.add(new DecoratorPropertyDef(decoratorDef, name, readType(), null, comments));
+                }
+                readConstantDeclarations(decoratorDef);
+                readMembers(decoratorDef);
+            }
+        }
+
+        private void readConstantDeclarations(ConstantScope scope) throws IOException {
+            for (int i = readSize(); i > 0; i -= 1) {
+                final String name = readString();
+                final List<String> comments = readStrings();
+                // The value is read later since it may refer to constants that are not read yet.
+                objects.add(new ConstantDef(scope, name, readType(), LiteralNull.INSTANCE, comments));
+            }
+        }
+
+        private void readFile(FileDef fileDef) throws IOException {
+            for (int i = readSize(); i > 0; i -= 1) {
+                final int kind = input.readByte();
+                if (kind == ImportKind.NAMESPACE.getNumber()) {
+                    fileDef.getImports().add(new ImportNamespaceDef(readId(NamespaceDef.class)));
+                } else if (kind == ImportKind.TYPE.getNumber()) {
+                    final TypeCustom target = (TypeCustom) readId(TypeDef.class).getType();
+                    fileDef.getImports().add(new ImportTypeDef(target, readString()));
+                } else
+                    throw new IOException("Type of import directive is unknown: " + kind + ".");
+            }
+            fileDef.getOptions().addAll(FileNodeSerializer.readArguments(input));
+            readContents(fileDef);
+        }
+
+        private void readContents(TypeScope scope) throws IOException {
+            for (EnumerationDef enumerationDef : scope.getDefinedEnumerations()) {
+                readDecorators(enumerationDef);
+                for (EnumerationMemberDef memberDef : enumerationDef.getMembers()) {
+                    readDecorators(memberDef);
+                    memberDef.setRawValue(readLiteral());
+                }
+            }
+
+            for (ClassDef classDef : scope.getDefinedClasses()) {
+                readDecorators(classDef);
+                classDef.setSuperClass(readId(ClassDef.class));
+                readIds(classDef.getSuperInterfaces(), InterfaceDef.class);
+                for (int i = readSize(); i > 0; i -= 1) {
+                    final String name = readString();
+                    final List<String> comments = readStrings();
+                    final List<Decorator> decorators = readDecorators();
+                    final Type type = readType();
+                    final Literal defaultValue = readLiteral();
+                    final boolean isOverride = input.readBoolean();
+                    final ClassPropertyDef propertyDef = new ClassPropertyDef(classDef, name, type, defaultValue,
+                        isOverride, input.readBoolean(), comments);
+                    propertyDef.getDecorators().addAll(decorators);
+                }
+                readConstantValues(classDef.getDefinedConstants());
+                readContents(classDef);
+            }
+
+            for (InterfaceDef interfaceDef : scope.getDefinedInterfaces()) {
+                readDecorators(interfaceDef);
+                readIds(interfaceDef.getSuperInterfaces(), InterfaceDef.class);
+                for (int i = readSize(); i > 0; i -= 1) {
+                    final String name = readString();
+                    final List<String> comments = readStrings();
+                    final List<Decorator> decorators = readDecorators();
+                    final Type type = readType();
+                    final boolean isOverride = input.readBoolean();
+                    final boolean isReadable = input.readBoolean();
+                    final InterfacePropertyDef propertyDef = new InterfacePropertyDef(interfaceDef, name, type,
+                        isOverride, isReadable, input.readBoolean(), comments);
+                    propertyDef.getDecorators().addAll(decorators);
+                }
+                for (int i = readSize(); i > 0; i -= 1) {
+                    final String name = readString();
+                    final List<String> comments = readStrings();
+                    final List<Decorator> decorators = readDecorators();
+                    final InterfaceMethodDef methodDef = new InterfaceMethodDef(interfaceDef, name, readType(), comments);
+                    methodDef.getDecorators().addAll(decorators);
+                    for (int j = readSize(); j > 0; j -= 1) {
+                        final String parameterName = readString();
+                        final List<String> parameterComments = readStrings();
+                        final List<Decorator> parameterDecorators = readDecorators();
+                        final Type type = readType();
+                        final FormalParameterDef parameterDef = new FormalParameterDef(methodDef, parameterName, type,
+                            input.readBoolean(), parameterComments);
+                        parameterDef.getDecorators().addAll(parameterDecorators);
+                        methodDef.getFormalParameters().add(parameterDef);
+                    }
+                    interfaceDef.getMethods().add(methodDef);
+                }
+                readContents(interfaceDef);
+            }
+
+            for (DecoratorDef decoratorDef : scope.getDefinedDecorators()) {
+                readDecorators(decoratorDef);
+                for (DecoratorPropertyDef propertyDef : decoratorDef.getProperties()) {
+                    readDecorators(propertyDef);
+                    propertyDef.setDefault(readLiteral());
+                }
+                readConstantValues(decoratorDef.getDefinedConstants());
+                readContents(decoratorDef);
+            }
+        }
+
+        private void readConstantValues(List<ConstantDef> constantDefs) throws IOException {
+            for (ConstantDef constantDef : constantDefs) {
+                readDecorators(constantDef);
+                constantDef.setValue(readLiteral());
+            }
+        }
+
+        private void readDecorators(ItemDef itemDef) throws IOException {
+            itemDef.getDecorators().addAll(readDecorators());
+        }
+
+        private List<Decorator> readDecorators() throws IOException {
+            final int count = readSize();
+            final List<Decorator> decorators = new ArrayList<>(count);
+            for (int i = 0; i < count; i += 1) {
+                final DecoratorDef definition = readId(DecoratorDef.class);
+                final int argumentCount = readSize();
+                final List<DecoratorPropertyValue> arguments = new ArrayList<>(argumentCount);
+                for (int j = 0; j < argumentCount; j += 1) {
+                    final DecoratorPropertyDef propertyDef = readId(DecoratorPropertyDef.class);
+                    if (input.readBoolean()) {
+                        // The default value of the property may not be read yet.
+                        final DecoratorPropertyValue argument = new DecoratorPropertyValue(propertyDef,
+                            LiteralNull.INSTANCE, true);
+                        defaultArguments.add(argument);
+                        arguments.add(argument);
+                    } else {
+                        arguments.add(new DecoratorPropertyValue(propertyDef, readLiteral(), false));
+                    }
+                }
+                decorators.add(new Decorator(definition, arguments));
+            }
+            return decorators;
+        }
+
+        private Type readType() throws IOException {
+            final int tag = readSize();
+            if (tag == 0)
+                return null;
+
+            final TypeKind kind = TypeKind.values()[tag - 1];
+            switch (kind) {
+                case TYPE:
+                    return TypeType.INSTANCE;
+                case BOOLEAN:
+                    return TypeBoolean.INSTANCE;
+                case INT8:
+                    return TypeInt8.INSTANCE;
+                case UINT8:
+                    return TypeUInt8.INSTANCE;
+                case INT16:
+                    return TypeInt16.INSTANCE;
+                case UINT16:
+                    return TypeUInt16.INSTANCE;
+                case INT32:
+                    return TypeInt32.INSTANCE;
+                case UINT32:
+                    return TypeUInt32.INSTANCE;
+                case INT64:
+                    return TypeInt64.INSTANCE;
+                case UINT64:
+                    return TypeUInt64.INSTANCE;
+                case FLOAT32:
+                    return TypeFloat32.INSTANCE;
+                case FLOAT64:
+                    return TypeFloat64.INSTANCE;
+                case DECIMAL:
+                    return TypeDecimal.INSTANCE;
+                case TEXT:
+                    return TypeText.INSTANCE;
+                case DATA:
+                    return TypeData.INSTANCE;
+                case TIMESTAMP:
+                    return TypeTimestamp.INSTANCE;
+                case DATE:
+                    return TypeDate.INSTANCE;
+                case TIME:
+                    return TypeTime.INSTANCE;
+                case DURATION:
+                    return TypeDuration.INSTANCE;
+                case UUID:
+                    return TypeUUID.INSTANCE;
+                case NULLABLE:
+                    return types.intern(new TypeNullable(readType()));
+                case LIST:
+                    return types.intern(new TypeList(readType()));
+                case SET:
+                    return types.intern(new TypeSet(readType()));
+                case MAP:
+                    final Type keyType = readType();
+                    return types.intern(new TypeMap(keyType, readType()));
+                case ACTION:
+                    return types.intern(new TypeAction(readTypes()));
+                case FUNCTION:
+                    final List<Type> argumentTypes = readTypes();
+                    return types.intern(new TypeFunction(argumentTypes, readType()));
+                case ENUMERATION:
+                case CLASS:
+                case INTERFACE:
+                case DECORATOR:
+                    return readId(TypeDef.class).getType();
+                default:
+                    throw new IOException("Type kind is unknown: " + kind + ".");
+            }
+        }
+
+        private List<Type> readTypes() throws IOException {
+            final int count = readSize();
+            final List<Type> types = new ArrayList<>(count);
+            for (int i = 0; i < count; i += 1)
+                types.add(readType());
+            return types;
+        }
+
+        private Literal readLiteral() throws IOException {
+            final int tag = readSize();
+            if (tag == 0)
+                return null;
+
+            final LiteralKind kind = LiteralKind.values()[tag - 1];
+            switch (kind) {
+                case TYPE:
+                    return new LiteralType(readType());
+                case BOOLEAN:
+                    return input.readBoolean() ? LiteralBoolean.TRUE : LiteralBoolean.FALSE;
+                case TEXT:
+                    return new LiteralText(readString());
+                case INT8:
+                    return new LiteralInt8(input.readByte());
+                case UINT8:
+                    return new LiteralUInt8(input.readByte());
+                case INT16:
+                    return new LiteralInt16(input.readShort());
+                case UINT16:
+                    return new LiteralUInt16(input.readShort());
+                case INT32:
+                    return new LiteralInt32(input.readInt());
+                case UINT32:
+                    return new LiteralUInt32(input.readInt());
+                case INT64:
+                    return new LiteralInt64(input.readLong());
+                case UINT64:
+                    return new LiteralUInt64(input.readLong());
+                case FLOAT32:
+                    return new LiteralFloat32(input.readFloat());
+                case FLOAT64:
+                    return new LiteralFloat64(input.readDouble());
+                case DECIMAL:
+                    return new LiteralDecimal(input.readLong());
+                case TIMESTAMP:
+                    return new LiteralTimestamp(readString());
+                case DATE:
+                    return new LiteralDate(readString());
+                case TIME:
+                    return new LiteralTime(readString());
+                case DURATION:
+                    return new LiteralDuration(readString());
+                case UUID:
+                    final long mostSignificantBits = input.readLong();
+                    return new LiteralUUID(new UUID(mostSignificantBits, input.readLong()));
+                case NULL:
+                    return LiteralNull.INSTANCE;
+                case ENUMERATION_VALUE:
+                    return new LiteralEnumerationValue(readId(EnumerationMemberDef.class));
+                case CONSTANT:
+                    return new LiteralConstant(readId(ConstantDef.class));
+                case LIST:
+                    final LiteralList list = new LiteralList();
+                    for (int i = readSize(); i > 0; i -= 1)
+                        list.getValue().add(readLiteral());
+                    return list;
+                default:
+                    throw new IOException("Literal kind is unknown: " + kind + ".");
+            }
+        }
+
+        private <T> T readId(Class<T> type) throws IOException {
+            final int id = readSize();
+            return id != 0 ? type.cast(objects.get(id - 1)) : null;
+        }
+
+        private <T> void readIds(List<T> values, Class<T> type) throws IOException {
+            for (int i = readSize(); i > 0; i -= 1)
+                values.add(readId(type));
+        }
+
+        private List<String> readStrings() throws IOException {
+            final int count = readSize();
+            final List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i += 1)
+                values.add(readString());
+            return values;
+        }
+
+        private String readString() throws IOException {
+            final int tag = readSize();
+            if (tag == 0)
+                return null;
+            if (tag > 1)
+                return strings.get(tag - 2);
+
+            final byte[] bytes = new byte[readSize()];
+            input.readFully(bytes);
+            final String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+
+        private int readSize() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                final int b = input.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("Project snapshot is corrupted.");
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package deltix.luminary;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the project of the session up to date while its source files (and source files of referenced projects)
+ * change on disk. Changes are collected until no new change arrives within the debounce delay, so a burst of changes
+ * (e.g. a checkout of another branch) results in a single update. After every update the registered listeners are
+ * notified on the watcher thread.
+ * <p>
+ * A change of a project file causes all the source files of that project to be analyzed again, so changes of the
+ * source directories are picked up. Changes of the references of a project are not supported and require the project
+ * to be loaded again. Projects within archives are not watched.
+ * <p>
+ * The project is updated in place while holding the lock of the watcher, so it can be safely read by listeners or by
+ * other threads that synchronize on the watcher.
+ */
+public class ProjectWatcher implements Closeable {
+    private final ProjectSession session;
+    private final long debounceDelay;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, ProjectDef> projectFiles = new HashMap<>();
+    private final Set<Path> sourceDirectories = new HashSet<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+
+    /**
+     * Receives notifications about updates of the watched project.
+     */
+    public interface Listener {
+        /**
+         * Called after the project has been updated.
+         *
+         * @param projectDef   Updated project.
+         * @param changedTypes Types defined within the namespaces that have been built again.
+         */
+        void projectUpdated(@NotNull ProjectDef projectDef, @NotNull List<TypeCustom> changedTypes);
+
+        /**
+         * Called when the project cannot be updated, e.g. because a source file contains errors. The project is left
+         * as it was before the update.
+         *
+         * @param projectDef Project that has not been updated.
+         * @param exception  Exception that has occurred.
+         */
+        void updateFailed(@NotNull ProjectDef projectDef, @NotNull Exception exception);
+    }
+
+    /**
+     * Initializes the new instance of @see ProjectWatcher. Call {@link #start()} to start watching.
+     *
+     * @param session       Session of the project to watch.
+     * @param debounceDelay Time in milliseconds without changes after which the project is updated.
+     * @throws IOException if directories of the projects cannot be watched.
+     */
+    public ProjectWatcher(@NotNull ProjectSession session, long debounceDelay) throws IOException {
+        if (debounceDelay < 0)
+            throw new IllegalArgumentException("Debounce delay cannot be negative.");
+
+        this.session = session;
+        this.debounceDelay = debounceDelay;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "Luminary project watcher");
+        thread.setDaemon(true);
+
+        try {
+            for (ProjectDef project : session.getProjects()) {
+                if (!(project.getDirectory() instanceof FileSystemLocation))
+                    continue;
+
+                final Path directory = ((FileSystemLocation) project.getDirectory()).getPath();
+                projectFiles.put(directory.resolve(project.getFileName()).normalize(), project);
+                register(directory);
+                registerSourceDirectories(project);
+            }
+        } catch (IOException | RuntimeException exception) {
+            watchService.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Session of the watched project.
+     *
+     * @return Session of the watched project.
+     */
+    @NotNull
+    public ProjectSession getSession() {
+        return session;
+    }
+
+    public void addListener(@NotNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@NotNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts watching in the background thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops watching. An update that is in progress is completed.
+     *
+     * @throws IOException if the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            final Set<Location> changedFiles = new LinkedHashSet<>();
+            while (true) {
+                // Wait for the first change, then collect changes until there is a pause.
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    collectChanges(key, changedFiles);
+                    key = watchService.poll(debounceDelay, TimeUnit.MILLISECONDS);
+                }
+
+                if (!changedFiles.isEmpty()) {
+                    update(changedFiles);
+                    changedFiles.clear();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ignored) {
+        }
+    }
+
+    private void collectChanges(WatchKey key, Set<Location> changedFiles) {
+        final Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Some events are lost, so analyze everything again.
+                for (ProjectDef project : session.getProjects())
+                    changedFiles.addAll(session.getSourceFiles(project));
+                continue;
+            }
+
+            final Path file = directory.resolve((Path) event.context()).normalize();
+            final String fileName = file.getFileName().toString();
+            if (fileName.endsWith(".lux")) {
+                changedFiles.add(new FileSystemLocation(file));
+            } else if (projectFiles.containsKey(file)) {
+                changedFiles.addAll(session.getSourceFiles(projectFiles.get(file)));
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)) {
+                try {
+                    registerTree(file);
+                } catch (IOException ignored) {
+                    // The directory has been deleted already.
+                }
+            }
+        }
+
+        if (!key.reset())
+            directories.remove(key);
+    }
+
+    private void update(Set<Location> changedFiles) {
+        final ProjectDef projectDef = session.getProject();
+        final List<TypeCustom> changedTypes = new ArrayList<>();
+        try {
+            synchronized (this) {
+                session.update(changedFiles);
+                for (NamespaceDef namespaceDef : session.getUpdatedNamespaces())
+                    changedTypes.addAll(namespaceDef.getDefinedTypes().values());
+
+                // Source directories may have been added to project files.
+                for (ProjectDef project : session.getProjects()) {
+                    if (!(project.getDirectory() instanceof FileSystemLocation))
+                        continue;
+                    try {
+                        registerSourceDirectories(project);
+                    } catch (IOException ignored) {
+                        // The directory has been deleted already.
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException exception) {
+            for (Listener listener : listeners)
+                listener.updateFailed(projectDef, exception);
+            return;
+        }
+
+        for (Listener listener : listeners)
+            listener.projectUpdated(projectDef, changedTypes);
+    }
+
+    private void registerSourceDirectories(ProjectDef project) throws IOException {
+        for (Location sourceDirectory : session.getSourceDirectories(project)) {
+            if (!(sourceDirectory instanceof FileSystemLocation))
+                continue;
+
+            final Path directory = ((FileSystemLocation) sourceDirectory).getPath().normalize();
+            if (!sourceDirectories.contains(directory)) {
+                registerTree(directory);
+                sourceDirectories.add(directory);
+            }
+        }
+    }
+
+    private void registerTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                register(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void register(Path directory) throws IOException {
+        final WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        directories.put(key, directory);
+    }
+}
@@ -0,0 +1,130 @@
+package deltix.luminary;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * File-level dependency graph of a project built from the headers (namespace and import statements) of its source
+ * files. A file depends on all the other files of its own namespace, since they can be referenced without imports, and
+ * on all the files of the project that define the namespaces it imports. Files that depend on referenced projects only
+ * have no dependencies within the graph.
+ * <p>
+ * Types referenced by qualified names without an import are not visible in the headers, so such dependencies are
+ * not part of the graph.
+ */
+public class SourceGraph {
+    private final Map<Location, String> namespaces = new LinkedHashMap<>();
+    private final Map<Location, Set<Location>> dependencies = new LinkedHashMap<>();
+    private final Map<Location, Set<Location>> dependents = new LinkedHashMap<>();
+
+    SourceGraph() {
+    }
+
+    void addFile(Location file, String namespace) {
+        namespaces.put(file, namespace);
+        dependencies.put(file, new LinkedHashSet<Location>());
+        dependents.put(file, new LinkedHashSet<Location>());
+    }
+
+    void addDependency(Location file, Location dependency) {
+        if (file.equals(dependency))
+            return;
+        dependencies.get(file).add(dependency);
+        dependents.get(dependency).add(file);
+    }
+
+    /**
+     * Returns source files of the project in the order they were enumerated.
+     *
+     * @return List of source files.
+     */
+    public List<Location> getFiles() {
+        return new ArrayList<>(namespaces.keySet());
+    }
+
+    /**
+     * Returns the namespace declared by the source file.
+     *
+     * @param file Source file of the project.
+     * @return Namespace of the file or {@code null} if the file does not belong to the project.
+     */
+    public String getNamespace(Location file) {
+        return namespaces.get(file);
+    }
+
+    /**
+     * Returns the source files of the same namespace and the source files the given file imports namespaces or
+     * types from.
+     *
+     * @param file Source file of the project.
+     * @return Set of files the given file depends on.
+     */
+    public Set<Location> getDependencies(Location file) {
+        final Set<Location> result = dependencies.get(file);
+        return result != null ? Collections.unmodifiableSet(result) : Collections.<Location>emptySet();
+    }
+
+    /**
+     * Returns the source files of the same namespace and the source files that import namespaces or types from the
+     * given file.
+     *
+     * @param file Source file of the project.
+     * @return Set of files that depend on the given file.
+     */
+    public Set<Location> getDependents(Location file) {
+        final Set<Location> result = dependents.get(file);
+        return result != null ? Collections.unmodifiableSet(result) : Collections.<Location>emptySet();
+    }
+
+    /**
+     * Returns the files that have to be analyzed again when the given files change, i.e. the changed files and all
+     * the files that depend on them directly or indirectly.
+     *
+     * @param changedFiles Changed source files.
+     * @return Set of affected files.
+     */
+    public Set<Location> getAffectedFiles(Collection<? extends Location> changedFiles) {
+        final Set<Location> affectedFiles = new LinkedHashSet<>();
+        final Deque<Location> queue = new ArrayDeque<>();
+        for (Location file : changedFiles)
+            if (namespaces.containsKey(file) && affectedFiles.add(file))
+                queue.add(file);
+
+        while (!queue.isEmpty())
+            for (Location dependent : dependents.get(queue.poll()))
+                if (affectedFiles.add(dependent))
+                    queue.add(dependent);
+        return affectedFiles;
+    }
+
+    /**
+     * Returns source files ordered so that dependencies precede the files depending on them. Files that depend on each
+     * other (e.g. files of the same namespace) are in no particular order among themselves.
+     *
+     * @return Ordered list of source files.
+     */
+    public List<Location> getOrder() {
+        final List<Location> order = new ArrayList<>(namespaces.size());
+        final Set<Location> visited = new HashSet<>();
+        for (Location file : namespaces.keySet())
+            visit(file, visited, order);
+        return order;
+    }
+
+    private void visit(Location file, Set<Location> visited, List<Location> order) {
+        if (!visited.add(file))
+            return;
+        for (Location dependency : dependencies.get(file))
+            visit(dependency, visited, order);
+        order.add(file);
+    }
+}
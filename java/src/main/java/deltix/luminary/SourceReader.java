@@ -0,0 +1,122 @@
+package deltix.luminary;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads UTF-8 source files into character streams. Large files are memory-mapped, other files are read into the
+ * buffer that is reused between calls. Decoded characters are also kept in the reused buffer, so the returned stream
+ * is valid only until the next call. The reader is not thread-safe.
+ */
+final class SourceReader {
+    private static final int MAPPED_FILE_SIZE = 1 << 20;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1 << 22;
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes = ByteBuffer.allocateDirect(1 << 16);
+    private CharBuffer chars = CharBuffer.allocate(1 << 16);
+    private final byte[] buffer = new byte[8192];
+
+    CharStream read(Location location) throws IOException {
+        final ANTLRInputStream stream = location instanceof FileSystemLocation
+            ? readFile((FileSystemLocation) location)
+            : readStream(location.readAsStream());
+        stream.name = location.toString();
+        return stream;
+    }
+
+    /**
+     * Decodes the source file that has already been read.
+     */
+    CharStream read(Location location, byte[] content) throws IOException {
+        final ANTLRInputStream stream = decode(ByteBuffer.wrap(content));
+        stream.name = location.toString();
+        return stream;
+    }
+
+    /**
+     * Drops the buffers that grew too large while reading a huge file, so that they are not kept forever.
+     */
+    void release() {
+        if (bytes.capacity() > MAX_RETAINED_BUFFER_SIZE)
+            bytes = ByteBuffer.allocateDirect(1 << 16);
+        if (chars.capacity() > MAX_RETAINED_BUFFER_SIZE)
+            chars = CharBuffer.allocate(1 << 16);
+    }
+
+    private ANTLRInputStream readFile(FileSystemLocation location) throws IOException {
+        try (FileChannel channel = FileChannel.open(location.getPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("File '" + location + "' is too large.");
+
+            if (size >= MAPPED_FILE_SIZE) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                return decode(buffer);
+            }
+
+            bytes.clear();
+            ensureBytesCapacity((int) size + 1);
+            while (channel.read(bytes) >= 0) {
+                if (!bytes.hasRemaining())
+                    ensureBytesCapacity(bytes.capacity() * 2);
+            }
+            bytes.flip();
+            return decode(bytes);
+        }
+    }
+
+    private ANTLRInputStream readStream(InputStream stream) throws IOException {
+        try (InputStream input = stream) {
+            bytes.clear();
+            for (int count = input.read(buffer); count >= 0; count = input.read(buffer)) {
+                ensureBytesCapacity(bytes.position() + count);
+                bytes.put(buffer, 0, count);
+            }
+            bytes.flip();
+            return decode(bytes);
+        }
+    }
+
+    private void ensureBytesCapacity(int capacity) {
+        if (bytes.capacity() >= capacity)
+            return;
+
+        final ByteBuffer newBytes = ByteBuffer.allocateDirect(Math.max(capacity, bytes.capacity() * 2));
+        bytes.flip();
+        newBytes.put(bytes);
+        bytes = newBytes;
+    }
+
+    private ANTLRInputStream decode(ByteBuffer input) throws CharacterCodingException {
+        // UTF-8 never produces more characters than there are bytes.
+        if (chars.capacity() < input.remaining())
+            chars = CharBuffer.allocate(input.remaining());
+        chars.clear();
+
+        decoder.reset();
+        CoderResult result = decoder.decode(input, chars, true);
+        if (!result.isUnderflow())
+            result.throwException();
+        result = decoder.flush(chars);
+        if (!result.isUnderflow())
+            result.throwException();
+
+        return new ANTLRInputStream(chars.array(), chars.position());
+    }
+}
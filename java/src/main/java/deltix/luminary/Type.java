@@ -19,4 +19,9 @@ public abstract class Type {
     public boolean equals(Type other) {
         return other != null && other.kind == kind;
     }
+
+    @Override
+    public int hashCode() {
+        return kind.ordinal();
+    }
 }
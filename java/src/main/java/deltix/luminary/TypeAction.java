@@ -23,4 +23,18 @@ public class TypeAction extends Type {
     public List<Type> getArgumentTypes() {
         return argumentTypes;
     }
+
+    @Override
+    public boolean equals(Type other) {
+        return other instanceof TypeAction && equals((TypeAction) other);
+    }
+
+    public boolean equals(TypeAction other) {
+        return other != null && other.argumentTypes.equals(argumentTypes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + argumentTypes.hashCode();
+    }
 }
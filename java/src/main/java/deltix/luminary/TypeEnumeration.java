@@ -21,6 +21,11 @@ public class TypeEnumeration extends TypeCustom {
         return other != null && other.definition.equals(definition);
     }
 
+    @Override
+    public int hashCode() {
+        return definition.hashCode();
+    }
+
     @Override
     public String toString() {
         return definition.getFullName();
@@ -24,4 +24,18 @@ public class TypeFunction extends Type {
     public Type getReturnType() {
         return returnType;
     }
+
+    @Override
+    public boolean equals(Type other) {
+        return other instanceof TypeFunction && equals((TypeFunction) other);
+    }
+
+    public boolean equals(TypeFunction other) {
+        return other != null && other.argumentTypes.equals(argumentTypes) && other.returnType.equals(returnType);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * super.hashCode() + argumentTypes.hashCode()) + returnType.hashCode();
+    }
 }
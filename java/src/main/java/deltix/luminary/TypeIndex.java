@@ -0,0 +1,104 @@
+package deltix.luminary;
+
+import java.util.*;
+
+/**
+ * Index of the types that can be referenced by simple names within a file: types defined within every scope of the
+ * file and types imported by the file. It replaces scanning definitions and imports of the file with a hash lookup
+ * per scope. {@link ProjectLoader} fills the index while the file is analyzed, for other files (e.g. read from
+ * a snapshot) the index is built from their definitions on the first use (see {@link FileDef#getTypeIndex()}).
+ */
+final class TypeIndex {
+    private final Map<TypeScope, Map<String, TypeCustom>> scopes = new IdentityHashMap<>();
+    private final Map<String, List<TypeCustom>> aliasedTypes = new HashMap<>();
+    private final Map<String, List<TypeCustom>> importedTypes = new HashMap<>();
+    private final List<NamespaceDef> importedNamespaces = new ArrayList<>();
+
+    static TypeIndex build(FileDef fileDef) {
+        final TypeIndex index = new TypeIndex();
+        index.addScope(fileDef);
+        for (ImportDef importDef : fileDef.getImports())
+            index.addImport(importDef);
+        return index;
+    }
+
+    /**
+     * Returns the type defined directly within the scope.
+     */
+    TypeCustom getDefinedType(TypeScope scope, String name) {
+        final Map<String, TypeCustom> types = scopes.get(scope);
+        return types != null ? types.get(name) : null;
+    }
+
+    void addDefinedType(TypeScope scope, TypeCustom type) {
+        Map<String, TypeCustom> types = scopes.get(scope);
+        if (types == null) {
+            types = new HashMap<>();
+            scopes.put(scope, types);
+        }
+        types.put(type.getName(), type);
+    }
+
+    void addImport(ImportDef importDef) {
+        if (importDef.getKind() == ImportKind.TYPE) {
+            final ImportTypeDef importTypeDef = (ImportTypeDef) importDef;
+            if (importTypeDef.getAlias() != null)
+                add(aliasedTypes, importTypeDef.getAlias(), importTypeDef.getTarget());
+            else
+                add(importedTypes, importTypeDef.getTarget().getName(), importTypeDef.getTarget());
+        } else {
+            importedNamespaces.add(((ImportNamespaceDef) importDef).getTarget());
+        }
+    }
+
+    /**
+     * Adds types imported under the alias.
+     */
+    void collectAliasedTypes(String alias, Set<TypeCustom> candidates) {
+        final List<TypeCustom> types = aliasedTypes.get(alias);
+        if (types != null)
+            candidates.addAll(types);
+    }
+
+    /**
+     * Adds types imported without an alias either directly or with their namespaces.
+     */
+    void collectImportedTypes(String name, Set<TypeCustom> candidates) {
+        final List<TypeCustom> types = importedTypes.get(name);
+        if (types != null)
+            candidates.addAll(types);
+
+        // Namespaces are not merged into the index, since files usually import few but large namespaces.
+        for (NamespaceDef namespaceDef : importedNamespaces) {
+            final TypeCustom type = namespaceDef.getDefinedTypes().get(name);
+            if (type != null)
+                candidates.add(type);
+        }
+    }
+
+    private void addScope(TypeScope scope) {
+        for (EnumerationDef enumerationDef : scope.getDefinedEnumerations())
+            addDefinedType(scope, enumerationDef.getType());
+        for (DecoratorDef decoratorDef : scope.getDefinedDecorators()) {
+            addDefinedType(scope, decoratorDef.getType());
+            addScope(decoratorDef);
+        }
+        for (ClassDef classDef : scope.getDefinedClasses()) {
+            addDefinedType(scope, classDef.getType());
+            addScope(classDef);
+        }
+        for (InterfaceDef interfaceDef : scope.getDefinedInterfaces()) {
+            addDefinedType(scope, interfaceDef.getType());
+            addScope(interfaceDef);
+        }
+    }
+
+    private static void add(Map<String, List<TypeCustom>> map, String name, TypeCustom type) {
+        List<TypeCustom> types = map.get(name);
+        if (types == null) {
+            types = new ArrayList<>(1);
+            map.put(name, types);
+        }
+        types.add(type);
+    }
+}
@@ -29,6 +29,11 @@ public class TypeMap extends Type {
         return other != null && other.keyType.equals(keyType) && other.valueType.equals(valueType);
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * (31 * super.hashCode() + keyType.hashCode()) + valueType.hashCode();
+    }
+
     @Override
     public String toString() {
         return string;
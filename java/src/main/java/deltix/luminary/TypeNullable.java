@@ -23,6 +23,11 @@ public class TypeNullable extends Type {
         return other != null && other.underlyingType.equals(underlyingType);
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + underlyingType.hashCode();
+    }
+
     @Override
     public String toString() {
         return string;
@@ -8,11 +8,11 @@ public class ClassNode extends TypeContainerNode {
     private final List<DecoratorValueNode> decorators = new ArrayList<>();
     private final List<String> comments;
     private final List<ClassPropertyNode> properties = new ArrayList<>();
-    private final List<String> supertypes;
+    private final List<TypeReferenceNode> supertypes;
     private final List<ConstantNode> definedConstants = new ArrayList<>();
     private boolean isFinal;
 
-    public ClassNode(String name, boolean isFinal, List<String> supertypes, List<String> comments) {
+    public ClassNode(String name, boolean isFinal, List<TypeReferenceNode> supertypes, List<String> comments) {
         super();
         this.name = name;
         this.isFinal = isFinal;
@@ -36,7 +36,7 @@ public class ClassNode extends TypeContainerNode {
         return comments;
     }
 
-    public List<String> getSupertypes() {
+    public List<TypeReferenceNode> getSupertypes() {
         return supertypes;
     }
 
@@ -11,7 +11,7 @@ public class ClassPropertyNode extends PropertyNode {
     private Literal defaultValue = null;
     private final boolean isFinal;
 
-    public ClassPropertyNode(String name, String type, boolean isOverride, boolean isFinal, List<String> comments) {
+    public ClassPropertyNode(String name, TypeReferenceNode type, boolean isOverride, boolean isFinal, List<String> comments) {
         super(name, type, comments);
         this.isOverride = isOverride;
         this.isFinal = isFinal;
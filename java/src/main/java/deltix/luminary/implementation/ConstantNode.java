@@ -7,16 +7,16 @@ import org.jetbrains.annotations.Nullable;
 import java.util.List;
 
 public class ConstantNode extends ItemNode {
-    private final String type;
+    private final TypeReferenceNode type;
     private final Literal value;
 
-    ConstantNode(@NotNull String name, @NotNull String type, @NotNull Literal value, @Nullable List<String> comments) {
+    ConstantNode(@NotNull String name, @NotNull TypeReferenceNode type, @NotNull Literal value, @Nullable List<String> comments) {
         super(name, comments);
         this.type = type;
         this.value = value;
     }
 
-    public String getType() {
+    public TypeReferenceNode getType() {
         return type;
     }
 
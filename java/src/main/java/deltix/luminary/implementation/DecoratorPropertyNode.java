@@ -9,7 +9,7 @@ import java.util.List;
 public class DecoratorPropertyNode extends PropertyNode {
     private Literal defaultValue = null;
 
-    public DecoratorPropertyNode(String name, String type, List<String> comments) {
+    public DecoratorPropertyNode(String name, TypeReferenceNode type, List<String> comments) {
         super(name, type, comments);
     }
 
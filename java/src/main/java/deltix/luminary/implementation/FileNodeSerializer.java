@@ -0,0 +1,537 @@
+package deltix.luminary.implementation;
+
+import deltix.luminary.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes parsed source files in a compact binary form and reads them back. The location of the file is not written,
+ * it has to be set by the reader. Strings are written as UTF-8 bytes prefixed with their length, lists are prefixed
+ * with the number of items; {@code -1} stands for {@code null} in both cases.
+ */
+public final class FileNodeSerializer {
+    // Tag of unresolved literals that is followed by their kind. Other literals are tagged with their kind numbers.
+    private static final int UNRESOLVED_LITERAL = 0;
+    // Tags of type references.
+    private static final int NAMED_TYPE = 0;
+    private static final int GENERIC_TYPE = 1;
+    private static final int NULLABLE_TYPE = 2;
+
+    private FileNodeSerializer() {
+    }
+
+    public static void write(DataOutput output, FileNode fileNode) throws IOException {
+        writeString(output, fileNode.getNamespace());
+        output.writeInt(fileNode.getImports().size());
+        for (ImportNode importNode : fileNode.getImports()) {
+            writeString(output, importNode.getNamespace());
+            writeString(output, importNode.getTypeName());
+            writeString(output, importNode.getAlias());
+        }
+        writeArguments(output, fileNode.getOptions());
+        writeContainer(output, fileNode);
+    }
+
+    public static FileNode read(DataInput input) throws IOException {
+        final FileNode fileNode = new FileNode();
+        fileNode.setNamespace(readString(input));
+        for (int i = readSize(input); i > 0; i -= 1) {
+            final String namespace = readString(input);
+            final String typeName = readString(input);
+            final String alias = readString(input);
+            fileNode.getImports().add(typeName == null ? ImportNode.everything(namespace)
+                : alias == null ? ImportNode.type(namespace, typeName)
+                : ImportNode.typeWithAlias(namespace, typeName, alias));
+        }
+        fileNode.getOptions().addAll(readArguments(input));
+        readContainer(input, fileNode);
+        return fileNode;
+    }
+
+    private static void writeContainer(DataOutput output, TypeContainerNode containerNode) throws IOException {
+        output.writeInt(containerNode.getDefinedEnumerations().size());
+        for (EnumerationNode enumerationNode : containerNode.getDefinedEnumerations()) {
+            writeItem(output, enumerationNode);
+            writeString(output, enumerationNode.getUnderlyingType());
+            output.writeInt(enumerationNode.getMembers().size());
+            for (EnumerationMemberNode memberNode : enumerationNode.getMembers()) {
+                writeItem(output, memberNode);
+                writeLiteral(output, memberNode.getValue());
+            }
+        }
+
+        output.writeInt(containerNode.getDefinedClasses().size());
+        for (ClassNode classNode : containerNode.getDefinedClasses()) {
+            writeString(output, classNode.getName());
+            output.writeBoolean(classNode.isFinal());
+            writeTypes(output, classNode.getSupertypes());
+            writeStrings(output, classNode.getComments());
+            writeDecorators(output, classNode.getDecorators());
+            output.writeInt(classNode.getProperties().size());
+            for (ClassPropertyNode propertyNode : classNode.getProperties()) {
+                writeItem(output, propertyNode);
+                writeType(output, propertyNode.getType());
+                output.writeBoolean(propertyNode.isOverride());
+                output.writeBoolean(propertyNode.isFinal());
+                writeLiteral(output, propertyNode.getDefault());
+            }
+            writeConstants(output, classNode.getDefinedConstants());
+            writeContainer(output, classNode);
+        }
+
+        output.writeInt(containerNode.getDefinedInterfaces().size());
+        for (InterfaceNode interfaceNode : containerNode.getDefinedInterfaces()) {
+            writeString(output, interfaceNode.getName());
+            writeTypes(output, interfaceNode.getSupertypes());
+            writeStrings(output, interfaceNode.getComments());
+            writeDecorators(output, interfaceNode.getDecorators());
+            output.writeInt(interfaceNode.getProperties().size());
+            for (InterfacePropertyNode propertyNode : interfaceNode.getProperties()) {
+                writeItem(output, propertyNode);
+                writeType(output, propertyNode.getType());
+                output.writeBoolean(propertyNode.isOverride());
+                output.writeBoolean(propertyNode.isGettable());
+                output.writeBoolean(propertyNode.isSettable());
+            }
+            output.writeInt(interfaceNode.getMethods().size());
+            for (InterfaceMethodNode methodNode : interfaceNode.getMethods()) {
+                writeItem(output, methodNode);
+                writeType(output, methodNode.getReturnType());
+                output.writeInt(methodNode.getFormalParameters().size());
+                for (FormalParameterNode parameterNode : methodNode.getFormalParameters()) {
+                    writeItem(output, parameterNode);
+                    writeType(output, parameterNode.getType());
+                    output.writeBoolean(parameterNode.isParameterArray());
+                }
+            }
+            writeContainer(output, interfaceNode);
+        }
+
+        output.writeInt(containerNode.getDefinedDecorators().size());
+        for (DecoratorNode decoratorNode : containerNode.getDefinedDecorators()) {
+            writeString(output, decoratorNode.getName());
+            writeStrings(output, decoratorNode.getComments());
+            writeDecorators(output, decoratorNode.getDecorators());
+            output.writeInt(decoratorNode.getProperties().size());
+            for (DecoratorPropertyNode propertyNode : decoratorNode.getProperties()) {
+                writeItem(output, propertyNode);
+                writeType(output, propertyNode.getType());
+                writeLiteral(output, propertyNode.getDefault());
+            }
+            writeConstants(output, decoratorNode.getDefinedConstants());
+            writeContainer(output, decoratorNode);
+        }
+    }
+
+    private static void readContainer(DataInput input, TypeContainerNode containerNode) throws IOException {
+        for (int i = readSize(input); i > 0; i -= 1) {
+            final String name = readString(input);
+            final List<String> comments = readStrings(input);
+            final List<DecoratorValueNode> decorators = readDecorators(input);
+            final EnumerationNode enumerationNode = new EnumerationNode(name, readString(input), comments);
+            enumerationNode.getDecorators().addAll(decorators);
+            for (int j = readSize(input); j > 0; j -= 1) {
+                final String memberName = readString(input);
+                final List<String> memberComments = readStrings(input);
+                final EnumerationMemberNode memberNode = new EnumerationMemberNode(memberName, memberComments);
+                memberNode.getDecorators().addAll(readDecorators(input));
+                memberNode.setValue(readLiteral(input));
+                enumerationNode.getMembers().add(memberNode);
+            }
+            containerNode.getDefinedEnumerations().add(enumerationNode);
+        }
+
+        for (int i = readSize(input); i > 0; i -= 1) {
+            final String name = readString(input);
+            final boolean isFinal = input.readBoolean();
+            final List<TypeReferenceNode> supertypes = readTypes(input);
+            final ClassNode classNode = new ClassNode(name, isFinal, supertypes, readStrings(input));
+            classNode.getDecorators().addAll(readDecorators(input));
+            for (int j = readSize(input); j > 0; j -= 1) {
+                final String propertyName = readString(input);
+                final List<String> comments = readStrings(input);
+                final List<DecoratorValueNode> decorators = readDecorators(input);
+                final TypeReferenceNode type = readType(input);
+                final boolean isOverride = input.readBoolean();
+                final boolean isPropertyFinal = input.readBoolean();
+                final ClassPropertyNode propertyNode =
+                    new ClassPropertyNode(propertyName, type, isOverride, isPropertyFinal, comments);
+                propertyNode.getDecorators().addAll(decorators);
+                final Literal defaultValue = readLiteral(input);
+                if (defaultValue != null)
+                    propertyNode.setDefault(defaultValue);
+                classNode.getProperties().add(propertyNode);
+            }
+            readConstants(input, classNode.getDefinedConstants());
+            readContainer(input, classNode);
+            containerNode.getDefinedClasses().add(classNode);
+        }
+
+        for (int i = readSize(input); i > 0; i -= 1) {
+            final String name = readString(input);
+            final List<TypeReferenceNode> supertypes = readTypes(input);
+            final InterfaceNode interfaceNode = new InterfaceNode(name, supertypes, readStrings(input));
+            interfaceNode.getDecorators().addAll(readDecorators(input));
+            for (int j = readSize(input); j > 0; j -= 1) {
+                final String propertyName = readString(input);
+                final List<String> comments = readStrings(input);
+                final List<DecoratorValueNode> decorators = readDecorators(input);
+                final TypeReferenceNode type = readType(input);
+                final boolean isOverride = input.readBoolean();
+                final boolean isGettable = input.readBoolean();
+                final boolean isSettable = input.readBoolean();
+                final InterfacePropertyNode propertyNode =
+                    new InterfacePropertyNode(propertyName, type, isOverride, isGettable, isSettable, comments);
+                propertyNode.getDecorators().addAll(decorators);
+                interfaceNode.getProperties().add(propertyNode);
+            }
+            for (int j = readSize(input); j > 0; j -= 1) {
+                final String methodName = readString(input);
+                final List<String> comments = readStrings(input);
+                final List<DecoratorValueNode> decorators = readDecorators(input);
+                final InterfaceMethodNode methodNode = new InterfaceMethodNode(methodName, readType(input), comments);
+                methodNode.getDecorators().addAll(decorators);
+                for (int k = readSize(input); k > 0; k -= 1) {
+                    final String parameterName = readString(input);
+                    final List<String> parameterComments = readStrings(input);
+                    final List<DecoratorValueNode> parameterDecorators = readDecorators(input);
+                    final TypeReferenceNode type = readType(input);
+                    final FormalParameterNode parameterNode =
+                        new FormalParameterNode(parameterName, type, input.readBoolean(), parameterComments);
+                    parameterNode.getDecorators().addAll(parameterDecorators);
+                    methodNode.getFormalParameters().add(parameterNode);
+                }
+                interfaceNode.getMethods().add(methodNode);
+            }
+            readContainer(input, interfaceNode);
+            containerNode.getDefinedInterfaces().add(interfaceNode);
+        }
+
+        for (int i = readSize(input); i > 0; i -= 1) {
+            final String name = readString(input);
+            final DecoratorNode decoratorNode = new DecoratorNode(name, readStrings(input));
+            decoratorNode.getDecorators().addAll(readDecorators(input));
+            for (int j = readSize(input); j > 0; j -= 1) {
+                final String propertyName = readString(input);
+                final List<String> comments = readStrings(input);
+                final List<DecoratorValueNode> decorators = readDecorators(input);
+                final DecoratorPropertyNode propertyNode =
+                    new DecoratorPropertyNode(propertyName, readType(input), comments);
+                propertyNode.getDecorators().addAll(decorators);
+                final Literal defaultValue = readLiteral(input);
+                if (defaultValue != null)
+                    propertyNode.setDefault(defaultValue);
+                decoratorNode.getProperties().add(propertyNode);
+            }
+            readConstants(input, decoratorNode.getDefinedConstants());
+            readContainer(input, decoratorNode);
+            containerNode.getDefinedDecorators().add(decoratorNode);
+        }
+    }
+
+    private static void writeItem(DataOutput output, ItemNode itemNode) throws IOException {
+        writeString(output, itemNode.getName());
+        writeStrings(output, itemNode.getComments());
+        writeDecorators(output, itemNode.getDecorators());
+    }
+
+    private static void writeConstants(DataOutput output, List<ConstantNode> constantNodes) throws IOException {
+        output.writeInt(constantNodes.size());
+        for (ConstantNode constantNode : constantNodes) {
+            writeItem(output, constantNode);
+            writeType(output, constantNode.getType());
+            writeLiteral(output, constantNode.getValue());
+        }
+    }
+
+    private static void readConstants(DataInput input, List<ConstantNode> constantNodes) throws IOException {
+        for (int i = readSize(input); i > 0; i -= 1) {
+            final String name = readString(input);
+            final List<String> comments = readStrings(input);
+            final List<DecoratorValueNode> decorators = readDecorators(input);
+            final TypeReferenceNode type = readType(input);
+            final ConstantNode constantNode = new ConstantNode(name, type, readLiteral(input), comments);
+            constantNode.getDecorators().addAll(decorators);
+            constantNodes.add(constantNode);
+        }
+    }
+
+    private static void writeDecorators(DataOutput output, List<DecoratorValueNode> decoratorNodes)
+        throws IOException {
+        output.writeInt(decoratorNodes.size());
+        for (DecoratorValueNode decoratorNode : decoratorNodes) {
+            writeString(output, decoratorNode.getName());
+            writeArguments(output, decoratorNode.getArguments());
+        }
+    }
+
+    private static List<DecoratorValueNode> readDecorators(DataInput input) throws IOException {
+        final int size = readSize(input);
+        final List<DecoratorValueNode> decoratorNodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i += 1) {
+            final String name = readString(input);
+            decoratorNodes.add(new DecoratorValueNode(name, readArguments(input)));
+        }
+        return decoratorNodes;
+    }
+
+    /**
+     * Writes name-value pairs (e.g. options of a file) with their values exactly as they were parsed.
+     */
+    public static void writeArguments(DataOutput output, List<NameValuePair> arguments) throws IOException {
+        output.writeInt(arguments.size());
+        for (NameValuePair argument : arguments) {
+            writeString(output, argument.getName());
+            writeLiteral(output, argument.getValue());
+        }
+    }
+
+    public static List<NameValuePair> readArguments(DataInput input) throws IOException {
+        final int size = readSize(input);
+        final List<NameValuePair> arguments = new ArrayList<>(size);
+        for (int i = 0; i < size; i += 1) {
+            final String name = readString(input);
+            arguments.add(new NameValuePair(name, readLiteral(input)));
+        }
+        return arguments;
+    }
+
+    private static void writeLiteral(DataOutput output, Literal literal) throws IOException {
+        if (literal == null) {
+            output.writeByte(-1);
+            return;
+        }
+
+        if (literal instanceof LiteralUnresolved) {
+            output.writeByte(UNRESOLVED_LITERAL);
+            output.writeByte(literal.getKind().getNumber());
+            if (literal.getKind() == LiteralKind.TYPE)
+                writeType(output, ((LiteralUnresolved) literal).getType());
+            else
+                writeString(output, ((LiteralUnresolved) literal).getValue());
+            return;
+        }
+
+        output.writeByte(literal.getKind().getNumber());
+        switch (literal.getKind()) {
+            case BOOLEAN:
+                output.writeBoolean(((LiteralBoolean) literal).getValue());
+                break;
+            case TEXT:
+                writeString(output, ((LiteralText) literal).getValue());
+                break;
+            case INT8:
+                output.writeByte(((LiteralInt8) literal).getValue());
+                break;
+            case UINT8:
+                output.writeByte(((LiteralUInt8) literal).getValue());
+                break;
+            case INT16:
+                output.writeShort(((LiteralInt16) literal).getValue());
+                break;
+            case UINT16:
+                output.writeShort(((LiteralUInt16) literal).getValue());
+                break;
+            case INT32:
+                output.writeInt(((LiteralInt32) literal).getValue());
+                break;
+            case UINT32:
+                output.writeInt(((LiteralUInt32) literal).getValue());
+                break;
+            case INT64:
+                output.writeLong(((LiteralInt64) literal).getValue());
+                break;
+            case UINT64:
+                output.writeLong(((LiteralUInt64) literal).getValue());
+                break;
+            case FLOAT32:
+                output.writeFloat(((LiteralFloat32) literal).getValue());
+                break;
+            case FLOAT64:
+                output.writeDouble(((LiteralFloat64) literal).getValue());
+                break;
+            case DECIMAL:
+                output.writeLong(((LiteralDecimal) literal).getValue());
+                break;
+            case NULL:
+                break;
+            case LIST:
+                final List<Literal> items = ((LiteralList) literal).getValue();
+                output.writeInt(items.size());
+                for (Literal item : items)
+                    writeLiteral(output, item);
+                break;
+            default:
+                throw new IllegalStateException("Literal of kind '" + literal.getKind() + "' cannot be serialized.");
+        }
+    }
+
+    private static Literal readLiteral(DataInput input) throws IOException {
+        final int number = input.readByte();
+        if (number < 0)
+            return null;
+
+        if (number == UNRESOLVED_LITERAL) {
+            final LiteralKind kind = getKind(input.readByte());
+            return kind == LiteralKind.TYPE
+                ? new LiteralUnresolved(readType(input))
+                : new LiteralUnresolved(kind, readString(input));
+        }
+
+        switch (getKind(number)) {
+            case BOOLEAN:
+                return input.readBoolean() ? LiteralBoolean.TRUE : LiteralBoolean.FALSE;
+            case TEXT:
+                return new LiteralText(readString(input));
+            case INT8:
+                return new LiteralInt8(input.readByte());
+            case UINT8:
+                return new LiteralUInt8(input.readByte());
+            case INT16:
+                return new LiteralInt16(input.readShort());
+            case UINT16:
+                return new LiteralUInt16(input.readShort());
+            case INT32:
+                return new LiteralInt32(input.readInt());
+            case UINT32:
+                return new LiteralUInt32(input.readInt());
+            case INT64:
+                return new LiteralInt64(input.readLong());
+            case UINT64:
+                return new LiteralUInt64(input.readLong());
+            case FLOAT32:
+                return new LiteralFloat32(input.readFloat());
+            case FLOAT64:
+                return new LiteralFloat64(input.readDouble());
+            case DECIMAL:
+                return new LiteralDecimal(input.readLong());
+            case NULL:
+                return LiteralNull.INSTANCE;
+            case LIST:
+                final LiteralList list = new LiteralList();
+                for (int i = readSize(input); i > 0; i -= 1)
+                    list.getValue().add(readLiteral(input));
+                return list;
+            default:
+                throw new IOException("Unexpected literal kind: " + number + ".");
+        }
+    }
+
+    private static LiteralKind getKind(int number) throws IOException {
+        for (LiteralKind kind : LiteralKind.values())
+            if (kind.getNumber() == number)
+                return kind;
+        throw new IOException("Unexpected literal kind: " + number + ".");
+    }
+
+    private static void writeType(DataOutput output, TypeReferenceNode type) throws IOException {
+        if (type == null) {
+            output.writeByte(-1);
+        } else if (type.isNullable()) {
+            output.writeByte(NULLABLE_TYPE);
+            writeType(output, type.getUnderlyingType());
+        } else if (type.isGeneric()) {
+            output.writeByte(GENERIC_TYPE);
+            writeString(output, type.getName());
+            writeTypes(output, type.getArguments());
+        } else {
+            output.writeByte(NAMED_TYPE);
+            writeString(output, type.getName());
+        }
+    }
+
+    private static TypeReferenceNode readType(DataInput input) throws IOException {
+        final int tag = input.readByte();
+        switch (tag) {
+            case -1:
+                return null;
+            case NULLABLE_TYPE:
+                return TypeReferenceNode.nullable(readType(input));
+            case GENERIC_TYPE:
+                final String name = readString(input);
+                return TypeReferenceNode.generic(name, readTypes(input));
+            case NAMED_TYPE:
+                return TypeReferenceNode.named(readString(input));
+            default:
+                throw new IOException("Unexpected type tag: " + tag + ".");
+        }
+    }
+
+    private static void writeTypes(DataOutput output, List<TypeReferenceNode> types) throws IOException {
+        if (types == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        output.writeInt(types.size());
+        for (TypeReferenceNode type : types)
+            writeType(output, type);
+    }
+
+    private static List<TypeReferenceNode> readTypes(DataInput input) throws IOException {
+        final int size = input.readInt();
+        if (size < 0)
+            return null;
+
+        final List<TypeReferenceNode> types = new ArrayList<>(Math.min(size, 1024));
+        for (int i = 0; i < size; i += 1)
+            types.add(readType(input));
+        return types;
+    }
+
+    private static void writeStrings(DataOutput output, List<String> strings) throws IOException {
+        if (strings == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        output.writeInt(strings.size());
+        for (String string : strings)
+            writeString(output, string);
+    }
+
+    private static List<String> readStrings(DataInput input) throws IOException {
+        final int size = input.readInt();
+        if (size < 0)
+            return null;
+
+        final List<String> strings = new ArrayList<>(Math.min(size, 1024));
+        for (int i = 0; i < size; i += 1)
+            strings.add(readString(input));
+        return strings;
+    }
+
+    private static void writeString(DataOutput output, String string) throws IOException {
+        if (string == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        // DataOutput.writeUTF is not used since it is limited to 64K bytes.
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0)
+            return null;
+
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readSize(DataInput input) throws IOException {
+        final int size = input.readInt();
+        if (size < 0)
+            throw new IOException("Unexpected size: " + size + ".");
+        return size;
+    }
+}
@@ -5,7 +5,7 @@ import java.util.List;
 public class FormalParameterNode extends PropertyNode {
     private final boolean isParameterArray;
 
-    protected FormalParameterNode(String name, String type, boolean isParameterArray, List<String> comments) {
+    protected FormalParameterNode(String name, TypeReferenceNode type, boolean isParameterArray, List<String> comments) {
         super(name, type, comments);
         this.isParameterArray = isParameterArray;
     }
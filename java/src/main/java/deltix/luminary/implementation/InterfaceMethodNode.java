@@ -4,16 +4,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class InterfaceMethodNode extends ItemNode {
-    private final String returnType;
+    private final TypeReferenceNode returnType;
     private final List<FormalParameterNode> formalParameters;
 
-    protected InterfaceMethodNode(String name, String returnType, List<String> comments) {
+    protected InterfaceMethodNode(String name, TypeReferenceNode returnType, List<String> comments) {
         super(name, comments);
         this.returnType = returnType;
         this.formalParameters = new ArrayList<>();
     }
 
-    public String getReturnType() {
+    public TypeReferenceNode getReturnType() {
         return returnType;
     }
 
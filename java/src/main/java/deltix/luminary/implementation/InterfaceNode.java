@@ -9,9 +9,9 @@ public class InterfaceNode extends TypeContainerNode {
     private final List<String> comments;
     private final List<InterfacePropertyNode> properties;
     private final List<InterfaceMethodNode> methods;
-    private final List<String> supertypes;
+    private final List<TypeReferenceNode> supertypes;
 
-    protected InterfaceNode(String name, List<String> supertypes, List<String> comments) {
+    protected InterfaceNode(String name, List<TypeReferenceNode> supertypes, List<String> comments) {
         super();
         this.name = name;
         this.comments = comments;
@@ -41,7 +41,7 @@ public class InterfaceNode extends TypeContainerNode {
         return comments;
     }
 
-    public List<String> getSupertypes() {
+    public List<TypeReferenceNode> getSupertypes() {
         return supertypes;
     }
 }
@@ -7,7 +7,7 @@ public class InterfacePropertyNode extends PropertyNode {
     private final boolean isGettable;
     private final boolean isSettable;
 
-    public InterfacePropertyNode(String name, String type, boolean isOverride, boolean isGettable, boolean isSettable,
+    public InterfacePropertyNode(String name, TypeReferenceNode type, boolean isOverride, boolean isGettable, boolean isSettable,
                                  List<String> comments) {
         super(name, type, comments);
         this.isOverride = isOverride;
@@ -5,16 +5,31 @@ import deltix.luminary.LiteralKind;
 
 public class LiteralUnresolved extends Literal {
     private final String value;
+    private final TypeReferenceNode type;
 
     protected LiteralUnresolved(LiteralKind kind, String value) {
         super(kind);
         this.value = value;
+        this.type = null;
+    }
+
+    protected LiteralUnresolved(TypeReferenceNode type) {
+        super(LiteralKind.TYPE);
+        this.value = type.toString();
+        this.type = type;
     }
 
     public String getValue() {
         return value;
     }
 
+    /**
+     * Referenced type of unresolved {@code typeof} literals, {@code null} for other literals.
+     */
+    public TypeReferenceNode getType() {
+        return type;
+    }
+
     @Override
     public String toString() {
         return value;
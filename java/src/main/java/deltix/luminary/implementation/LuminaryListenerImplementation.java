@@ -167,7 +167,7 @@ public class LuminaryListenerImplementation extends LuminaryParserBaseListener {
 
     @Override
     public void enterDecoratorProperty(LuminaryParser.DecoratorPropertyContext ctx) {
-        decoratorPropertyNode = new DecoratorPropertyNode(ctx.IDENTIFIER().getText(), ctx.type().getText(), extractDocumentation(ctx));
+        decoratorPropertyNode = new DecoratorPropertyNode(ctx.IDENTIFIER().getText(), extractType(ctx.type()), extractDocumentation(ctx));
     }
 
     @Override
@@ -185,7 +185,7 @@ public class LuminaryListenerImplementation extends LuminaryParserBaseListener {
 
     @Override
     public void enterClassProperty(LuminaryParser.ClassPropertyContext ctx) {
-        classPropertyNode = new ClassPropertyNode(ctx.IDENTIFIER().getText(), ctx.type().getText(),
+        classPropertyNode = new ClassPropertyNode(ctx.IDENTIFIER().getText(), extractType(ctx.type()),
             ctx.OVERRIDE() != null, ctx.FINAL() != null, extractDocumentation(ctx));
         classNode.getProperties().add(classPropertyNode);
     }
@@ -211,7 +211,7 @@ public class LuminaryListenerImplementation extends LuminaryParserBaseListener {
 
     @Override
     public void enterInterfaceProperty(LuminaryParser.InterfacePropertyContext ctx) {
-        interfacePropertyNode = new InterfacePropertyNode(ctx.IDENTIFIER().getText(), ctx.type().getText(),
+        interfacePropertyNode = new InterfacePropertyNode(ctx.IDENTIFIER().getText(), extractType(ctx.type()),
             ctx.OVERRIDE() != null, ctx.GET() != null, ctx.SET() != null, extractDocumentation(ctx));
         interfaceNode.getProperties().add(interfacePropertyNode);
     }
@@ -256,7 +256,7 @@ public class LuminaryListenerImplementation extends LuminaryParserBaseListener {
 
     @Override
     public void exitConstantDefinition(LuminaryParser.ConstantDefinitionContext ctx) {
-        final ConstantNode constantNode = new ConstantNode(ctx.IDENTIFIER().getText(), ctx.type().getText(), literal, extractDocumentation(ctx));
+        final ConstantNode constantNode = new ConstantNode(ctx.IDENTIFIER().getText(), extractType(ctx.type()), literal, extractDocumentation(ctx));
         if (ctx.getParent() instanceof LuminaryParser.ClassEntryContext)
             ((ClassNode) types.peek()).getDefinedConstants().add(constantNode);
         else if (ctx.getParent() instanceof LuminaryParser.DecoratorEntryContext)
@@ -280,7 +280,7 @@ public class LuminaryListenerImplementation extends LuminaryParserBaseListener {
 
     @Override
     public void enterFormalFixedParameter(LuminaryParser.FormalFixedParameterContext ctx) {
-        formalParameterNode = new FormalParameterNode(ctx.IDENTIFIER().getText(), ctx.type().getText(), false,
+        formalParameterNode = new FormalParameterNode(ctx.IDENTIFIER().getText(), extractType(ctx.type()), false,
             extractDocumentation(ctx));
     }
 
@@ -292,7 +292,7 @@ public class LuminaryListenerImplementation extends LuminaryParserBaseListener {
 
     @Override
     public void enterFormalArrayParameter(LuminaryParser.FormalArrayParameterContext ctx) {
-        formalParameterNode = new FormalParameterNode(ctx.IDENTIFIER().getText(), ctx.type().getText(), true,
+        formalParameterNode = new FormalParameterNode(ctx.IDENTIFIER().getText(), extractType(ctx.type()), true,
             extractDocumentation(ctx));
     }
 
@@ -305,7 +305,7 @@ public class LuminaryListenerImplementation extends LuminaryParserBaseListener {
     @Override
     public void enterInterfaceMethod(LuminaryParser.InterfaceMethodContext ctx) {
         interfaceMethodNode = new InterfaceMethodNode(ctx.IDENTIFIER().getText(),
-            ctx.returnType().VOID() != null ? null : ctx.returnType().getText(), extractDocumentation(ctx));
+            ctx.returnType().VOID() != null ? null : extractType(ctx.returnType().type()), extractDocumentation(ctx));
     }
 
     @Override
@@ -380,7 +380,7 @@ public class LuminaryListenerImplementation extends LuminaryParserBaseListener {
 
     @Override
     public void exitTypeReference(LuminaryParser.TypeReferenceContext ctx) {
-        literal = new LiteralUnresolved(LiteralKind.TYPE, ctx.type().getText());
+        literal = new LiteralUnresolved(extractType(ctx.type()));
         tryConsumeLiteral(ctx.parent);
     }
 
@@ -484,19 +484,31 @@ public class LuminaryListenerImplementation extends LuminaryParserBaseListener {
         return new LiteralDecimal(Decimal64Utils.parse(text));
     }
 
-    private List<String> extractSupertypes(LuminaryParser.SupertypeListContext ctx) {
+    private List<TypeReferenceNode> extractSupertypes(LuminaryParser.SupertypeListContext ctx) {
         if (ctx == null)
             return null;
 
-        List<String> supertypes = new ArrayList<>();
+        List<TypeReferenceNode> supertypes = new ArrayList<>();
         while (ctx != null) {
-            supertypes.add(ctx.type().getText());
+            supertypes.add(extractType(ctx.type()));
             ctx = ctx.supertypeList();
         }
 
         return supertypes;
     }
 
+    private static TypeReferenceNode extractType(LuminaryParser.TypeContext ctx) {
+        if (ctx.qualifiedName() != null)
+            return TypeReferenceNode.named(ctx.qualifiedName().getText());
+        if (ctx.QUESTION_MARK() != null)
+            return TypeReferenceNode.nullable(extractType(ctx.type(0)));
+
+        final List<TypeReferenceNode> arguments = new ArrayList<>(ctx.type().size());
+        for (LuminaryParser.TypeContext argument : ctx.type())
+            arguments.add(extractType(argument));
+        return TypeReferenceNode.generic(ctx.IDENTIFIER().getText(), arguments);
+    }
+
     private List<String> extractDocumentation(ParserRuleContext ctx) {
         List<Token> hiddenTokens = tokens.getHiddenTokensToLeft(ctx.start.getTokenIndex());
         if (hiddenTokens == null)
@@ -3,14 +3,14 @@ package deltix.luminary.implementation;
 import java.util.List;
 
 public class PropertyNode extends ItemNode {
-    private final String type;
+    private final TypeReferenceNode type;
 
-    protected PropertyNode(String name, String type, List<String> comments) {
+    protected PropertyNode(String name, TypeReferenceNode type, List<String> comments) {
         super(name, comments);
         this.type = type;
     }
 
-    public String getType() {
+    public TypeReferenceNode getType() {
         return type;
     }
 }
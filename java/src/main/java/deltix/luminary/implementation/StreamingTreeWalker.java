@@ -0,0 +1,144 @@
+package deltix.luminary.implementation;
+
+import deltix.luminary.parser.LuminaryParser;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.Stack;
+
+/**
+ * Parse listener that feeds {@link LuminaryListenerImplementation} while the file is being parsed, so that the
+ * complete parse tree is never materialized. Items (properties, members, imports etc.) are walked as soon as they are
+ * parsed and then detached from the tree. Enter events of containers (files, types and their entries) are delayed
+ * until their headers are parsed, i.e. until their first nested item or container starts. Nothing is reported after
+ * a syntax error since the rules are exited without being completely parsed.
+ */
+public class StreamingTreeWalker implements ParseTreeListener {
+    private final Parser parser;
+    private final LuminaryListenerImplementation listener;
+    private final Stack<Container> containers = new Stack<>();
+    private int itemDepth = 0;
+
+    public StreamingTreeWalker(Parser parser, LuminaryListenerImplementation listener) {
+        this.parser = parser;
+        this.listener = listener;
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+        if (itemDepth > 0) {
+            itemDepth += 1;
+            return;
+        }
+
+        final boolean isItem = isItem(ctx);
+        if (!isItem && !isContainer(ctx))
+            return;
+
+        if (!containers.isEmpty())
+            containers.peek().enter(false);
+        if (isItem)
+            itemDepth = 1;
+        else
+            containers.push(new Container(ctx));
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        if (ctx.exception != null || parser.getNumberOfSyntaxErrors() > 0)
+            return;
+
+        if (itemDepth > 0) {
+            itemDepth -= 1;
+            if (itemDepth == 0) {
+                ParseTreeWalker.DEFAULT.walk(listener, ctx);
+                detach(ctx);
+            }
+            return;
+        }
+
+        if (containers.isEmpty() || containers.peek().ctx != ctx)
+            return;
+
+        containers.pop().exit();
+        if (!containers.isEmpty())
+            detach(ctx);
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+    }
+
+    private static void detach(ParserRuleContext ctx) {
+        final ParserRuleContext parent = ctx.getParent();
+        if (parent != null && parent.getChildCount() > 0 && parent.getChild(parent.getChildCount() - 1) == ctx)
+            parent.removeLastChild();
+    }
+
+    private static boolean isItem(ParserRuleContext ctx) {
+        return ctx instanceof LuminaryParser.NamespaceContext
+            || ctx instanceof LuminaryParser.ImportStatementContext
+            || ctx instanceof LuminaryParser.OptionContext
+            || ctx instanceof LuminaryParser.DecoratorPropertyContext
+            || ctx instanceof LuminaryParser.InterfacePropertyContext
+            || ctx instanceof LuminaryParser.InterfaceMethodContext
+            || ctx instanceof LuminaryParser.ClassPropertyContext
+            || ctx instanceof LuminaryParser.ConstantDefinitionContext
+            || ctx instanceof LuminaryParser.EnumerationMemberContext;
+    }
+
+    private static boolean isContainer(ParserRuleContext ctx) {
+        return ctx instanceof LuminaryParser.ProtocolContext
+            || ctx instanceof LuminaryParser.TypeDefinitionContext
+            || ctx instanceof LuminaryParser.DecoratorDefinitionContext
+            || ctx instanceof LuminaryParser.DecoratorEntryContext
+            || ctx instanceof LuminaryParser.InterfaceDefinitionContext
+            || ctx instanceof LuminaryParser.InterfaceEntryContext
+            || ctx instanceof LuminaryParser.ClassDefinitionContext
+            || ctx instanceof LuminaryParser.ClassEntryContext
+            || ctx instanceof LuminaryParser.EnumerationDefinitionContext;
+    }
+
+    private final class Container {
+        private final ParserRuleContext ctx;
+        private boolean isEntered = false;
+        private int walkedChildren = 0;
+
+        private Container(ParserRuleContext ctx) {
+            this.ctx = ctx;
+        }
+
+        /**
+         * Fires the enter event (once) and walks the children parsed so far. The last child is skipped unless the
+         * container is complete since it is the item or container that has just started.
+         */
+        private void enter(boolean isComplete) {
+            if (!isEntered) {
+                listener.enterEveryRule(ctx);
+                ctx.enterRule(listener);
+                isEntered = true;
+            }
+
+            final int count = ctx.getChildCount() - (isComplete ? 0 : 1);
+            for (; walkedChildren < count; walkedChildren += 1) {
+                final ParseTree child = ctx.getChild(walkedChildren);
+                ParseTreeWalker.DEFAULT.walk(listener, child);
+            }
+        }
+
+        private void exit() {
+            enter(true);
+            ctx.exitRule(listener);
+            listener.exitEveryRule(ctx);
+        }
+    }
+}
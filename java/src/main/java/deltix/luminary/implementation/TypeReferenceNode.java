@@ -0,0 +1,90 @@
+package deltix.luminary.implementation;
+
+import java.util.List;
+
+/**
+ * Type as it is written in a source file: a (possibly qualified) type name, a generic type with its arguments or
+ * a nullable type. For example, {@code Map<Text, List<Foo?>>} is a generic reference whose second argument is
+ * a generic reference to the nullable reference to {@code Foo}.
+ */
+public class TypeReferenceNode {
+    private final String name;
+    private final List<TypeReferenceNode> arguments;
+    private final TypeReferenceNode underlyingType;
+
+    private TypeReferenceNode(String name, List<TypeReferenceNode> arguments, TypeReferenceNode underlyingType) {
+        this.name = name;
+        this.arguments = arguments;
+        this.underlyingType = underlyingType;
+    }
+
+    /**
+     * Name of the referenced type or of the generic type, {@code null} for nullable references.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Arguments of the generic type, {@code null} if the reference is not generic.
+     */
+    public List<TypeReferenceNode> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Reference to the type made nullable, {@code null} if the reference is not nullable.
+     */
+    public TypeReferenceNode getUnderlyingType() {
+        return underlyingType;
+    }
+
+    public boolean isGeneric() {
+        return arguments != null;
+    }
+
+    public boolean isNullable() {
+        return underlyingType != null;
+    }
+
+    public static TypeReferenceNode named(String name) {
+        return new TypeReferenceNode(name, null, null);
+    }
+
+    public static TypeReferenceNode generic(String name, List<TypeReferenceNode> arguments) {
+        return new TypeReferenceNode(name, arguments, null);
+    }
+
+    public static TypeReferenceNode nullable(TypeReferenceNode underlyingType) {
+        return new TypeReferenceNode(null, null, underlyingType);
+    }
+
+    /**
+     * Returns the reference as it is written in a source file without whitespaces.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        append(builder);
+        return builder.toString();
+    }
+
+    private void append(StringBuilder builder) {
+        if (underlyingType != null) {
+            underlyingType.append(builder);
+            builder.append('?');
+            return;
+        }
+
+        builder.append(name);
+        if (arguments != null) {
+            builder.append('<');
+            for (int i = 0; i < arguments.size(); i += 1) {
+                if (i > 0)
+                    builder.append(',');
+                arguments.get(i).append(builder);
+            }
+            builder.append('>');
+        }
+    }
+}
@@ -0,0 +1,739 @@
+package deltix.luminary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ProjectLoaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private File write(String path, String content) throws IOException {
+        final File file = new File(folder.getRoot(), path);
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        Files.write(file.toPath(), Collections.singletonList(content), Charset.forName("UTF-8"));
+        return file;
+    }
+
+    private File writeProject(String name, String... references) throws IOException {
+        final StringBuilder builder = new StringBuilder("{ \"Sources\": [ { \"Directory\": \".\" } ], \"References\": [");
+        for (int i = 0; i < references.length; i += 1)
+            builder.append(i > 0 ? ", " : " ").append("\"../").append(references[i]).append('/').append(references[i]).append(".json\"");
+        builder.append(" ] }");
+        write(name + "/" + name + "/" + name + ".lux", "namespace " + name + ";\n\nclass " + name + "Class {\n    Int32 Value;\n}");
+        return write(name + "/" + name + ".json", builder.toString());
+    }
+
+    private ProjectLoader createLoader(boolean concurrent) {
+        final ProjectLoader loader = new ProjectLoader();
+        loader.setExecutor(concurrent ? executor : null);
+        return loader;
+    }
+
+    private void checkDiamondReferenceIsLoadedOnce(boolean concurrent) throws IOException {
+        writeProject("Common");
+        writeProject("Left", "Common");
+        writeProject("Right", "Common");
+        final File top = writeProject("Top", "Left", "Right", "Common");
+
+        final ProjectDef projectDef = createLoader(concurrent).load(top.getPath());
+        final ProjectDef common = projectDef.getReferences().get("../Common/Common.json");
+        assertNotNull(common);
+        assertSame(common, projectDef.getReferences().get("../Left/Left.json").getReferences().get("../Common/Common.json"));
+        assertSame(common, projectDef.getReferences().get("../Right/Right.json").getReferences().get("../Common/Common.json"));
+        assertNotNull(common.getNamespaces().get("Common").getDefinedTypes().get("CommonClass"));
+    }
+
+    @Test
+    public void diamondReferenceIsLoadedOnce() throws IOException {
+        checkDiamondReferenceIsLoadedOnce(false);
+    }
+
+    @Test
+    public void diamondReferenceIsLoadedOnceConcurrently() throws IOException {
+        checkDiamondReferenceIsLoadedOnce(true);
+    }
+
+    private void checkCycleIsDetected(boolean concurrent) throws IOException {
+        final File first = writeProject("First", "Second");
+        writeProject("Second", "First");
+
+        try {
+            createLoader(concurrent).load(first.getPath());
+            fail("Cycle of references is not detected.");
+        } catch (IllegalStateException exception) {
+            assertTrue(exception.getMessage().contains("cycle"));
+        }
+    }
+
+    @Test
+    public void cycleIsDetected() throws IOException {
+        checkCycleIsDetected(false);
+    }
+
+    @Test
+    public void cycleIsDetectedConcurrently() throws IOException {
+        checkCycleIsDetected(true);
+    }
+
+    @Test
+    public void concurrentLoadsShareProject() throws IOException, InterruptedException, ExecutionException {
+        writeProject("Common");
+        final File left = writeProject("Left", "Common");
+        final File right = writeProject("Right", "Common");
+
+        final ProjectLoader loader = createLoader(false);
+        final List<Future<ProjectDef>> futures = new ArrayList<>();
+        for (final File file : new File[] { left, right, left, right }) {
+            futures.add(executor.submit(new Callable<ProjectDef>() {
+                @Override
+                public ProjectDef call() throws Exception {
+                    return loader.load(file.getPath());
+                }
+            }));
+        }
+
+        assertSame(futures.get(0).get(), futures.get(2).get());
+        assertSame(futures.get(1).get(), futures.get(3).get());
+        assertSame(futures.get(0).get().getReferences().get("../Common/Common.json"),
+            futures.get(1).get().getReferences().get("../Common/Common.json"));
+    }
+
+    @Test
+    public void projectIsLoadedAfterParserCacheIsCleared() throws IOException {
+        final File project = writeProject("Common");
+        ParserSession.warmUp(Collections.singletonList(new FileSystemLocation(
+            new File(folder.getRoot(), "Common/Common/Common.lux").toPath())));
+        ParserSession.clearCache();
+
+        final ProjectDef projectDef = createLoader(false).load(project.getPath());
+        assertNotNull(projectDef.getNamespaces().get("Common").getDefinedTypes().get("CommonClass"));
+    }
+
+    @Test
+    public void largeUtf8SourceIsLoaded() throws IOException {
+        final StringBuilder builder = new StringBuilder("namespace Large;\n\n/// Größe.\nenum Huge {\n");
+        for (int i = 1; i <= 3000; i += 1) {
+            for (int j = 0; j < 4; j += 1)
+                builder.append("    /// Description that makes the file large enough to be memory-mapped when it is parsed.\n");
+            builder.append("    /// Значение ").append(i).append(".\n    VALUE_").append(i).append(" = ").append(i).append(";\n");
+        }
+        write("Large/Large/Huge.lux", builder.append("}").toString());
+        final File project = write("Large/Large.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+
+        final ProjectDef projectDef = createLoader(false).load(project.getPath());
+        final EnumerationDef huge = ((TypeEnumeration) projectDef.getNamespaces().get("Large").getDefinedTypes().get("Huge")).getDefinition();
+        assertEquals(3000, huge.getMembers().size());
+        assertEquals(Collections.singletonList("Größe."), huge.getComments());
+        final List<String> comments = huge.getMembers().get(2999).getComments();
+        assertEquals("Значение 3000.", comments.get(comments.size() - 1));
+    }
+
+    @Test
+    public void nestedDefinitionsAreLoaded() throws IOException {
+        write("Nested/Nested/Outer.lux", "namespace Nested;\n\ndecorator Tag {\n    Text Value;\n}\n\n" +
+            "/// Outer class.\n[Tag(\"outer\")]\nclass Outer {\n    const Int32 LIMIT = 10;\n\n" +
+            "    /// Nested enumeration.\n    enum Kind {\n        FIRST = 1;\n        SECOND = 2;\n    }\n\n" +
+            "    [Tag(\"value\")]\n    Int32 Value = 5;\n\n    class Inner {\n        Kind Kind;\n    }\n}");
+        final File project = write("Nested/Nested.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+
+        final ProjectDef projectDef = createLoader(false).load(project.getPath());
+        final ClassDef outer = ((TypeClass) projectDef.getNamespaces().get("Nested").getDefinedTypes().get("Outer")).getDefinition();
+        assertEquals(Collections.singletonList("Outer class."), outer.getComments());
+        assertEquals(1, outer.getDecorators().size());
+        assertEquals(1, outer.getDefinedConstants().size());
+        assertEquals(1, outer.getProperties().size());
+        assertEquals(1, outer.getProperties().get(0).getDecorators().size());
+        assertEquals(1, outer.getDefinedClasses().size());
+        assertEquals(1, outer.getDefinedEnumerations().size());
+        assertEquals(Collections.singletonList("Nested enumeration."), outer.getDefinedEnumerations().get(0).getComments());
+        assertEquals(2, outer.getDefinedEnumerations().get(0).getMembers().size());
+    }
+
+    @Test
+    public void prescanBuildsDependencyGraph() throws IOException {
+        writeProject("Common");
+        write("Graph/Graph/Base.lux", "namespace Graph;\n\nclass Base {\n    Int32 Id;\n}");
+        write("Graph/Graph/Api/Service.lux", "namespace Graph.Api;\n\nimport Graph.Base;\nimport Common.*;\n\n" +
+            "class Service : Base {\n    CommonClass Value;\n}");
+        write("Graph/Graph/Api/Client.lux", "namespace Graph.Api;\n\nclass Client {\n    Service Service;\n}");
+        final File project = write("Graph/Graph.json",
+            "{ \"Sources\": [ { \"Directory\": \".\" } ], \"References\": [ \"../Common/Common.json\" ] }");
+
+        final SourceGraph graph = createLoader(false).prescan(project.getPath());
+        final Location base = new FileSystemLocation(new File(folder.getRoot(), "Graph/Graph/Base.lux").toPath());
+        final Location service = new FileSystemLocation(new File(folder.getRoot(), "Graph/Graph/Api/Service.lux").toPath());
+        final Location client = new FileSystemLocation(new File(folder.getRoot(), "Graph/Graph/Api/Client.lux").toPath());
+        assertEquals(3, graph.getFiles().size());
+        assertEquals("Graph.Api", graph.getNamespace(service));
+        assertEquals(new HashSet<>(Arrays.asList(base, client)), graph.getDependencies(service));
+        assertEquals(Collections.singleton(service), graph.getDependencies(client));
+        assertEquals(new HashSet<>(Arrays.asList(base, service, client)), graph.getAffectedFiles(Collections.singleton(base)));
+        assertEquals(new HashSet<>(Arrays.asList(service, client)), graph.getAffectedFiles(Collections.singleton(service)));
+        assertTrue(graph.getOrder().indexOf(base) < graph.getOrder().indexOf(service));
+    }
+
+    @Test
+    public void prescanReportsMissingImport() throws IOException {
+        write("Missing/Missing/Main.lux", "namespace Missing;\n\nimport Unknown.Type;\n\nclass Main {\n}");
+        final File project = write("Missing/Missing.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+
+        try {
+            createLoader(false).prescan(project.getPath());
+            fail("Missing import is not reported.");
+        } catch (IllegalStateException exception) {
+            assertTrue(exception.getMessage().contains("Unknown.Type"));
+        }
+    }
+
+    @Test
+    public void unusedNamespacesOfReferencesAreNotLoaded() throws IOException {
+        write("Library/Library/Used/Value.lux", "namespace Library.Used;\n\nimport Library.Shared.*;\n\n" +
+            "class Value {\n    Base Base;\n}");
+        write("Library/Library/Shared/Base.lux", "namespace Library.Shared;\n\nclass Base {\n    Int32 Id;\n}");
+        write("Library/Library/Unused/Broken.lux", "namespace Library.Unused;\n\nclass Broken {");
+        write("Library/Library.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+        write("Service/Service/Main.lux", "namespace Service;\n\nclass Main {\n    Library.Used.Value Value;\n}");
+        final File project = write("Service/Service.json",
+            "{ \"Sources\": [ { \"Directory\": \".\" } ], \"References\": [ \"../Library/Library.json\" ] }");
+
+        final ProjectLoader loader = createLoader(false);
+        loader.setLazyReferences(true);
+        final ProjectDef projectDef = loader.load(project.getPath());
+        final ProjectDef library = projectDef.getReferences().get("../Library/Library.json");
+        assertEquals(new HashSet<>(Arrays.asList("Library.Used", "Library.Shared")), library.getNamespaces().keySet());
+    }
+
+    @Test
+    public void cachedFilesAreLoadedWithoutParsing() throws IOException {
+        write("Cached/Cached/Main.lux", "namespace Cached;\n\ndecorator Tag {\n    List<Text> Values = { \"a\", \"b\" };\n}\n\n" +
+            "/// Cached class.\n[Tag(Values = { \"c\" })]\nclass Main {\n    const UInt64 LIMIT = 10u64;\n    Float32 Ratio = 0.5f32;\n}\n\n" +
+            "interface Runner {\n    Int64 Id get;\n    Main Run(Main input);\n}");
+        final File project = write("Cached/Cached.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+        final File directory = folder.newFolder("cache");
+
+        for (int i = 0; i < 3; i += 1) {
+            if (i == 2) {
+                // Corrupted entries are parsed again.
+                final List<File> entries = new ArrayList<>();
+                for (File bucket : directory.listFiles())
+                    entries.addAll(Arrays.asList(bucket.listFiles()));
+                assertEquals(1, entries.size());
+                Files.write(entries.get(0).toPath(), new byte[] { 1, 2, 3 });
+            }
+
+            final ProjectLoader loader = createLoader(false);
+            loader.setParseCache(new ParseCache(directory.toPath(), 1 << 20));
+            final ProjectDef projectDef = loader.load(project.getPath());
+            final NamespaceDef namespace = projectDef.getNamespaces().get("Cached");
+            final ClassDef main = ((TypeClass) namespace.getDefinedTypes().get("Main")).getDefinition();
+            assertEquals(Collections.singletonList("Cached class."), main.getComments());
+            assertEquals(1, main.getDecorators().size());
+            assertEquals(1, main.getDefinedConstants().size());
+            assertEquals(1, main.getProperties().size());
+            assertNotNull(namespace.getDefinedTypes().get("Runner"));
+        }
+
+        // Files are loaded even if they cannot be cached.
+        final ProjectLoader loader = createLoader(false);
+        loader.setParseCache(new ParseCache(folder.newFile("broken-cache").toPath(), 1 << 20));
+        assertNotNull(loader.load(project.getPath()).getNamespaces().get("Cached"));
+    }
+
+    @Test
+    public void snapshotRestoresProjectWithReferences() throws IOException {
+        writeProject("Common");
+        write("Model/Model/Model.lux", "namespace Model;\n\nimport Common.CommonClass;\n\n" +
+            "[DecoratorUsage(ValidOn = { DecoratorTarget.CLASS })]\ndecorator Tag {\n    Text Value = \"none\";\n}\n\n" +
+            "/// Model class.\n[Tag]\nclass Model : CommonClass {\n    const UInt32 LIMIT = UInt32.MAX_VALUE;\n" +
+            "    List<Model?> Children;\n    Kind Kind = Kind.SECOND;\n\n    enum Kind {\n        FIRST = 1;\n        SECOND = 2;\n    }\n}");
+        final File project = write("Model/Model.json",
+            "{ \"Sources\": [ { \"Directory\": \".\" } ], \"References\": [ \"../Common/Common.json\" ] }");
+        final File snapshot = new File(folder.getRoot(), "Model.snapshot");
+        ProjectSnapshot.save(createLoader(false).load(project.getPath()), snapshot.toPath());
+
+        final ProjectDef projectDef = ProjectSnapshot.load(snapshot.toPath());
+        final ProjectDef common = projectDef.getReferences().get("../Common/Common.json");
+        final ClassDef model = ((TypeClass) projectDef.getNamespaces().get("Model").getDefinedTypes().get("Model")).getDefinition();
+        assertSame(((TypeClass) common.getNamespaces().get("Common").getDefinedTypes().get("CommonClass")).getDefinition(),
+            model.getSuperClass());
+        assertEquals(Collections.singletonList("Model class."), model.getComments());
+        assertEquals("Tag", model.getDecorators().get(0).getDefinition().getName());
+        assertEquals("none", ((LiteralText) model.getDecorators().get(0).getArguments().get(0).getValue()).getValue());
+        final DecoratorPropertyValue argument = model.getDecorators().get(0).getArguments().get(0);
+        assertTrue(argument.isDefault());
+        assertSame(argument.getDefinition().getDefault(), argument.getValue());
+        assertSame(UInt32Def.INSTANCE, ((LiteralConstant) model.getDefinedConstants().get(0).getValue()).getValue().getOwner());
+        assertEquals("List<Model?>", model.getProperties().get(0).getType().toString());
+        final LiteralEnumerationValue kind = (LiteralEnumerationValue) model.getProperties().get(1).getDefault();
+        assertSame(model.getDefinedEnumerations().get(0), kind.getValue().getOwner());
+        assertEquals("SECOND", kind.getValue().getName());
+    }
+
+    @Test
+    public void sessionRebuildsChangedNamespacesAndDependents() throws IOException {
+        write("Session/Base/Color.lux", "namespace Base;\n\nenum Color {\n    RED = 1;\n}");
+        write("Session/Model/Shape.lux", "namespace Model;\n\nimport Base.Color;\n\nclass Shape {\n    Color Color = Color.RED;\n}");
+        write("Session/Other/Other.lux", "namespace Other;\n\nclass Other {\n    Int32 Value;\n}");
+        final File project = write("Session/Session.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+        final ProjectLoader loader = createLoader(false);
+        final ProjectSession session = ProjectSession.open(loader, new FileSystemLocation(project.getPath()));
+        final NamespaceDef other = session.getProject().getNamespaces().get("Other");
+
+        final File color = write("Session/Base/Color.lux", "namespace Base;\n\nenum Color {\n    RED = 1;\n    GREEN = 2;\n}");
+        final ProjectDef projectDef = session.update(Collections.singletonList(new FileSystemLocation(color.getPath())));
+        assertEquals(Arrays.asList("Base", "Model"), getNamespaces(session.getUpdatedNamespaces()));
+        assertSame(other, projectDef.getNamespaces().get("Other"));
+        final EnumerationDef colorDef = projectDef.getNamespaces().get("Base").getFiles().get("Color.lux").getDefinedEnumerations().get(0);
+        assertEquals(2, colorDef.getMembers().size());
+        final ClassDef shape = projectDef.getNamespaces().get("Model").getFiles().get("Shape.lux").getDefinedClasses().get(0);
+        assertSame(colorDef, ((LiteralEnumerationValue) shape.getProperties().get(0).getDefault()).getValue().getOwner());
+
+        // Unchanged files parsed by the previous update are not parsed again.
+        final List<String> parsedFiles = new ArrayList<>();
+        loader.setListener(new LoadListener() {
+            @Override
+            public void fileParsed(Location location, int characters, int tokens) {
+                parsedFiles.add(location.getFileName());
+            }
+        });
+        write("Session/Base/Color.lux", "namespace Base;\n\nenum Color {\n    RED = 1;\n    BLUE = 3;\n}");
+        session.update(Collections.singletonList(new FileSystemLocation(color.getPath())));
+        assertEquals(Arrays.asList("Base", "Model"), getNamespaces(session.getUpdatedNamespaces()));
+        assertEquals(Collections.singletonList("Color.lux"), parsedFiles);
+        final EnumerationDef updatedColor = projectDef.getNamespaces().get("Base").getFiles().get("Color.lux").getDefinedEnumerations().get(0);
+        final ClassDef updatedShape = projectDef.getNamespaces().get("Model").getFiles().get("Shape.lux").getDefinedClasses().get(0);
+        assertSame(updatedColor, ((LiteralEnumerationValue) updatedShape.getProperties().get(0).getDefault()).getValue().getOwner());
+
+        write("Session/Model/Shape.lux", "namespace Model;\n\nclass Shape {\n    Unknown Color;\n}");
+        try {
+            session.update(Collections.singletonList(new FileSystemLocation(folder.getRoot().toPath().resolve("Session/Model/Shape.lux"))));
+            fail("Unknown type is not reported.");
+        } catch (IllegalStateException ignored) {
+        }
+        assertSame(updatedShape, projectDef.getNamespaces().get("Model").getFiles().get("Shape.lux").getDefinedClasses().get(0));
+
+        assertTrue(new File(folder.getRoot(), "Session/Model/Shape.lux").delete());
+        session.update(Collections.<Location>emptyList());
+        assertEquals(Arrays.asList("Base", "Other"), new ArrayList<>(projectDef.getNamespaces().keySet()));
+    }
+
+    @Test
+    public void sessionRebuildsNamespacesReferencedByActionTypes() throws IOException {
+        write("Actions/Base/Color.lux", "namespace Base;\n\nclass Color {\n    Int32 Value;\n}");
+        write("Actions/Model/Shape.lux", "namespace Model;\n\nclass Shape {\n    Action<Base.Color> Callback;\n}");
+        final File project = write("Actions/Actions.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+        final ProjectSession session = ProjectSession.open(createLoader(false), new FileSystemLocation(project.getPath()));
+
+        final File color = write("Actions/Base/Color.lux", "namespace Base;\n\nclass Color {\n    Int64 Value;\n}");
+        final ProjectDef projectDef = session.update(Collections.singletonList(new FileSystemLocation(color.getPath())));
+        assertEquals(Arrays.asList("Base", "Model"), getNamespaces(session.getUpdatedNamespaces()));
+        final ClassDef colorDef = projectDef.getNamespaces().get("Base").getFiles().get("Color.lux").getDefinedClasses().get(0);
+        final ClassDef shape = projectDef.getNamespaces().get("Model").getFiles().get("Shape.lux").getDefinedClasses().get(0);
+        final TypeAction callback = (TypeAction) shape.getProperties().get(0).getType();
+        assertSame(colorDef, ((TypeClass) callback.getArgumentTypes().get(0)).getDefinition());
+    }
+
+    @Test
+    public void watcherUpdatesProjectOnChange() throws Exception {
+        write("Watched/Base/Color.lux", "namespace Base;\n\nenum Color {\n    RED = 1;\n}");
+        write("Watched/Other/Other.lux", "namespace Other;\n\nclass Other {\n    Int32 Value;\n}");
+        final File project = write("Watched/Watched.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+        final ProjectSession session = ProjectSession.open(createLoader(false), new FileSystemLocation(project.getPath()));
+
+        final BlockingQueue<List<TypeCustom>> updates = new LinkedBlockingQueue<>();
+        try (ProjectWatcher watcher = new ProjectWatcher(session, 200)) {
+            watcher.addListener(new ProjectWatcher.Listener() {
+                @Override
+                public void projectUpdated(ProjectDef projectDef, List<TypeCustom> changedTypes) {
+                    updates.add(changedTypes);
+                }
+
+                @Override
+                public void updateFailed(ProjectDef projectDef, Exception exception) {
+                    updates.add(Collections.<TypeCustom>emptyList());
+                }
+            });
+            watcher.start();
+
+            write("Watched/Base/Color.lux", "namespace Base;\n\nenum Color {\n    RED = 1;\n    GREEN = 2;\n}");
+            write("Watched/Base/Shape.lux", "namespace Base;\n\nclass Shape {\n    Color Color;\n}");
+            final List<TypeCustom> changedTypes = updates.poll(10, TimeUnit.SECONDS);
+            assertNotNull("Project is not updated.", changedTypes);
+            final Set<String> names = new HashSet<>();
+            for (TypeCustom type : changedTypes)
+                names.add(type.getFullName());
+            assertEquals(new HashSet<>(Arrays.asList("Color", "Shape")), names);
+            assertEquals(2, session.getProject().getNamespaces().get("Base").getFiles().size());
+        }
+    }
+
+    @Test
+    public void watcherWatchesAddedSourceDirectories() throws Exception {
+        write("Growing/Main/Main/Main.lux", "namespace Main;\n\nclass Main {\n    Int32 Value;\n}");
+        write("Growing/Extra/Extra/Extra.lux", "namespace Extra;\n\nclass Extra {\n    Int32 Value;\n}");
+        final File project = write("Growing/Growing.json", "{ \"Sources\": [ { \"Directory\": \"Main\" } ] }");
+        final ProjectSession session = ProjectSession.open(createLoader(false), new FileSystemLocation(project.getPath()));
+
+        final BlockingQueue<List<TypeCustom>> updates = new LinkedBlockingQueue<>();
+        try (ProjectWatcher watcher = new ProjectWatcher(session, 200)) {
+            watcher.addListener(new ProjectWatcher.Listener() {
+                @Override
+                public void projectUpdated(ProjectDef projectDef, List<TypeCustom> changedTypes) {
+                    updates.add(changedTypes);
+                }
+
+                @Override
+                public void updateFailed(ProjectDef projectDef, Exception exception) {
+                    updates.add(Collections.<TypeCustom>emptyList());
+                }
+            });
+            watcher.start();
+
+            write("Growing/Growing.json", "{ \"Sources\": [ { \"Directory\": \"Main\" }, { \"Directory\": \"Extra\" } ] }");
+            assertNotNull("Project is not updated.", updates.poll(10, TimeUnit.SECONDS));
+            assertNotNull(session.getProject().getNamespaces().get("Extra"));
+
+            write("Growing/Extra/Extra/Extra.lux", "namespace Extra;\n\nclass Extra {\n    Int32 Value;\n}\n\nclass Added {\n}");
+            List<TypeCustom> changedTypes = updates.poll(10, TimeUnit.SECONDS);
+            // The project file may be reported twice, so skip updates that do not touch the added directory.
+            while (changedTypes != null && changedTypes.size() != 2)
+                changedTypes = updates.poll(10, TimeUnit.SECONDS);
+            assertNotNull("Change within the added directory is not noticed.", changedTypes);
+            assertNotNull(session.getProject().getNamespaces().get("Extra").getDefinedTypes().get("Added"));
+        }
+    }
+
+    @Test
+    public void clientLoadsProjectsThroughDaemon() throws IOException {
+        writeProject("Common");
+        final File model = write("Model/Model/Model.lux", "namespace Model;\n\nimport Common.CommonClass;\n\nclass Model : CommonClass {\n}");
+        final File project = write("Model/Model.json",
+            "{ \"Sources\": [ { \"Directory\": \".\" } ], \"References\": [ \"../Common/Common.json\" ] }");
+
+        final int port;
+        try (ProjectDaemon daemon = new ProjectDaemon(0, null)) {
+            daemon.start();
+            port = daemon.getPort();
+            final ProjectClient client = new ProjectClient(port);
+            final ProjectDef projectDef = client.load(project.getPath());
+            assertEquals("CommonClass", ((TypeClass) projectDef.getNamespaces().get("Model").getDefinedTypes().get("Model"))
+                .getDefinition().getSuperClass().getName());
+
+            write("Model/Model/Model.lux", "namespace Model;\n\nclass Model : Unknown {\n}");
+            assertTrue(model.setLastModified(model.lastModified() + 2000));
+            try {
+                client.validate(project.getPath());
+                fail("Unknown superclass is not reported.");
+            } catch (IllegalStateException ignored) {
+            }
+
+            write("Model/Model/Model.lux", "namespace Model;\n\nclass Model {\n}");
+            assertTrue(model.setLastModified(model.lastModified() + 4000));
+            assertNull(((TypeClass) client.load(project.getPath()).getNamespaces().get("Model").getDefinedTypes().get("Model"))
+                .getDefinition().getSuperClass());
+        }
+
+        // The daemon is closed, so the project is loaded within this process, still seeing the changes.
+        final ProjectClient client = new ProjectClient(port);
+        assertNotNull(client.load(project.getPath()).getNamespaces().get("Model"));
+        write("Model/Model/Model.lux", "namespace Model;\n\nclass Model : Unknown {\n}");
+        try {
+            client.validate(project.getPath());
+            fail("Unknown superclass is not reported.");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test
+    public void daemonSavesOnlyWithinItsDirectory() throws IOException {
+        final File project = writeProject("Common");
+        final File generated = folder.newFolder("Generated");
+        final File output = folder.newFolder("Generated", "Common");
+        final File other = folder.newFolder("Other");
+
+        try (ProjectDaemon daemon = new ProjectDaemon(0, null, generated.toPath())) {
+            daemon.start();
+            final ProjectClient client = new ProjectClient(daemon.getPort());
+            client.save(project.getPath(), output.getPath());
+            try {
+                client.save(project.getPath(), other.getPath());
+                fail("Saving outside of the directory is not refused.");
+            } catch (IllegalStateException ignored) {
+            }
+        }
+
+        try (ProjectDaemon daemon = new ProjectDaemon(0, null)) {
+            daemon.start();
+            try {
+                new ProjectClient(daemon.getPort()).save(project.getPath(), output.getPath());
+                fail("Saving is not refused.");
+            } catch (IllegalStateException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void diagnosticsCollectAllProblems() throws IOException {
+        write("Broken/Broken/Default.lux", "namespace Broken;\n\nclass Default {\n    Int32 Value = \"text\";\n}");
+        write("Broken/Broken/Syntax.lux", "namespace Broken;\n\nclass Syntax {\n    Int32 ;\n}");
+        write("Broken/Broken/Unknown.lux", "namespace Broken;\n\nclass Unknown {\n    Missing Value;\n}");
+        write("Broken/Broken/Valid.lux", "namespace Broken;\n\nclass Valid {\n    Int32 Value;\n}");
+        write("Broken/Other/Wrong.lux", "namespace Wrong;\n\nclass Wrong {\n}");
+        final File project = write("Broken/Broken.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+
+        final ProjectLoader loader = createLoader(false);
+        final Diagnostics diagnostics = new Diagnostics();
+        loader.setDiagnostics(diagnostics);
+        try {
+            loader.load(project.getPath());
+            fail("Errors are not reported.");
+        } catch (IllegalStateException ignored) {
+        }
+
+        final List<Diagnostic> problems = new ArrayList<>(diagnostics.getDiagnostics());
+        Collections.sort(problems, new Comparator<Diagnostic>() {
+            @Override
+            public int compare(Diagnostic x, Diagnostic y) {
+                return x.getLocation().getFileName().compareTo(y.getLocation().getFileName());
+            }
+        });
+        assertEquals(4, problems.size());
+        assertEquals("Default.lux", problems.get(0).getLocation().getFileName());
+        assertEquals(DiagnosticCode.TYPE, problems.get(0).getCode());
+        assertEquals("Syntax.lux", problems.get(1).getLocation().getFileName());
+        assertEquals(DiagnosticCode.SYNTAX, problems.get(1).getCode());
+        assertEquals(4, problems.get(1).getLine());
+        assertEquals(11, problems.get(1).getColumn());
+        assertEquals("Unknown.lux", problems.get(2).getLocation().getFileName());
+        assertEquals(DiagnosticCode.TYPE, problems.get(2).getCode());
+        assertEquals("Wrong.lux", problems.get(3).getLocation().getFileName());
+        assertEquals(DiagnosticCode.NAMESPACE, problems.get(3).getCode());
+    }
+
+    @Test
+    public void statisticsCountProcessedFiles() throws IOException {
+        final File project = writeProject("Common");
+        write("Common/Common/Other.lux", "namespace Common;\n\nclass Other : CommonClass {\n}");
+        final ProjectLoader loader = createLoader(false);
+        final LoadStatistics statistics = new LoadStatistics();
+        loader.setStatistics(statistics);
+        loader.load(project.getPath());
+
+        for (LoadPhase phase : LoadPhase.values())
+            assertEquals(phase.toString(), 2, statistics.getCount(phase));
+        assertTrue(statistics.getTime(LoadPhase.PARSE, TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void listenerReceivesProgressEvents() throws IOException {
+        writeProject("Common");
+        final File project = writeProject("Model", "Common");
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final ProjectLoader loader = createLoader(false);
+        loader.setListener(new LoadListener() {
+            @Override
+            public void projectStarted(Location location, int level) {
+                events.add("started " + location.getFileName() + " " + level);
+            }
+
+            @Override
+            public void fileStarted(Location location, String path, int level) {
+                events.add("reading " + path.replace('\\', '/') + " " + level);
+            }
+
+            @Override
+            public void fileParsed(Location location, int characters, int tokens) {
+                assertTrue(characters > 0 && tokens > 0);
+                events.add("parsed " + location.getFileName());
+            }
+
+            @Override
+            public void phaseCompleted(ProjectDef projectDef, LoadPhase phase, long nanoseconds, int files) {
+                if (phase == LoadPhase.CHECK_INHERITANCE)
+                    events.add("analyzed " + projectDef.getFileName() + " " + files);
+            }
+
+            @Override
+            public void projectFinished(ProjectDef projectDef, int level) {
+                events.add("finished " + projectDef.getFileName() + " " + level);
+            }
+        });
+        final LoadListener listener = loader.getListener();
+        loader.setVerbose(false);
+        assertSame(listener, loader.getListener());
+        loader.load(project.getPath());
+
+        assertEquals(Arrays.asList("started Model.json 0", "started Common.json 1", "reading Common/Common.lux 1",
+            "parsed Common.lux", "analyzed Common.json 1", "finished Common.json 1", "reading Model/Model.lux 0",
+            "parsed Model.lux", "analyzed Model.json 1", "finished Model.json 0"), events);
+    }
+
+    @Test
+    public void loadStopsWhenCancelled() throws IOException {
+        writeProject("Common");
+        final File project = writeProject("Model", "Common");
+        final Location location = new FileSystemLocation(project.getPath());
+        final CancellationToken token = new CancellationToken();
+        final ProjectLoader loader = createLoader(false);
+        loader.setListener(new LoadListener() {
+            @Override
+            public void projectFinished(ProjectDef projectDef, int level) {
+                token.cancel();
+            }
+        });
+
+        try {
+            loader.load(location, token);
+            fail("Load must be cancelled.");
+        } catch (CancellationException exception) {
+            assertEquals("Loading has been cancelled.", exception.getMessage());
+        }
+
+        try {
+            loader.load(location, CancellationToken.withTimeout(0, TimeUnit.MILLISECONDS));
+            fail("Load must time out.");
+        } catch (CancellationException exception) {
+            assertEquals("Loading has timed out.", exception.getMessage());
+        }
+
+        // Cancelled loads are not cached.
+        loader.setListener(LoadListener.NONE);
+        assertEquals("Model.json", loader.load(location).getFileName());
+    }
+
+    @Test
+    public void loadAsyncCompletesWithoutBlocking() throws Exception {
+        writeProject("Common");
+        final File project = writeProject("Model", "Common");
+        final File broken = write("Broken/Broken.json", "{ \"References\": [ \"../Missing/Missing.json\" ] }");
+        final ExecutorService readExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final ProjectLoader loader = createLoader(true);
+            final ProjectDef projectDef = loader.loadAsync(new FileSystemLocation(project.getPath()), readExecutor)
+                .get(10, TimeUnit.SECONDS);
+            assertEquals("Model.json", projectDef.getFileName());
+            assertEquals("Common.json", projectDef.getReferences().get("../Common/Common.json").getFileName());
+
+            // Lazily loaded references are selected without waiting for the files read on the same executor.
+            write("Lazy/Lazy/Lazy.lux", "namespace Lazy;\n\nimport Common.CommonClass;\n\nclass Lazy : CommonClass {\n}");
+            final File lazy = write("Lazy/Lazy.json",
+                "{ \"Sources\": [ { \"Directory\": \".\" } ], \"References\": [ \"../Common/Common.json\" ] }");
+            for (boolean concurrent : new boolean[] { false, true }) {
+                final ProjectLoader lazyLoader = createLoader(concurrent);
+                lazyLoader.setLazyReferences(true);
+                final ProjectDef lazyDef = lazyLoader.loadAsync(new FileSystemLocation(lazy.getPath()), readExecutor)
+                    .get(10, TimeUnit.SECONDS);
+                assertNotNull(lazyDef.getReferences().get("../Common/Common.json").getNamespaces().get("Common"));
+            }
+
+            try {
+                loader.loadAsync(new FileSystemLocation(broken.getPath()), readExecutor).get(10, TimeUnit.SECONDS);
+                fail("Missing reference is not reported.");
+            } catch (ExecutionException exception) {
+                assertTrue(exception.getCause() instanceof IOException);
+            }
+        } finally {
+            readExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void equalTypesAreInterned() throws IOException {
+        write("Types/Types/Types.lux", "namespace Types;\n\nclass First {\n    Map<Text, List<Int32?>> Values;\n}\n\n" +
+            "class Second {\n    Map<Text, List<Int32?>> Values;\n    List<Int32?> Items;\n}");
+        final File project = write("Types/Types.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+
+        final Map<String, TypeCustom> types = createLoader(false).load(project.getPath()).getNamespaces().get("Types").getDefinedTypes();
+        final ClassDef first = ((TypeClass) types.get("First")).getDefinition();
+        final ClassDef second = ((TypeClass) types.get("Second")).getDefinition();
+        final Type values = first.getProperties().get(0).getType();
+        assertSame(values, second.getProperties().get(0).getType());
+        assertSame(((TypeMap) values).getValueType(), second.getProperties().get(1).getType());
+
+        final Type copy = new TypeMap(TypeText.INSTANCE, new TypeList(new TypeNullable(TypeInt32.INSTANCE)));
+        assertEquals(values, copy);
+        assertEquals(values.hashCode(), copy.hashCode());
+    }
+
+    @Test
+    public void inheritanceIsFlattenedAndCyclesAreDetected() throws IOException {
+        write("Shapes/Shapes/Shapes.lux", "namespace Shapes;\n\ninterface Named {\n    Text Name get;\n}\n\n" +
+            "class Shape : Named {\n    Text Name;\n    Int32 Color;\n}\n\n" +
+            "class Circle : Shape {\n    override Int32 Color;\n    Float64 Radius;\n}");
+        final File project = write("Shapes/Shapes.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+
+        final Map<String, TypeCustom> types = createLoader(false).load(project.getPath()).getNamespaces().get("Shapes").getDefinedTypes();
+        final ClassDef circle = ((TypeClass) types.get("Circle")).getDefinition();
+        assertEquals(Arrays.asList("Name", "Color", "Radius"), new ArrayList<>(circle.getAllProperties().keySet()));
+        assertSame(circle, circle.getAllProperties().get("Color").getOwner());
+        assertSame(circle.getAllProperties(), circle.getAllProperties());
+
+        write("Cycle/Cycle/Cycle.lux", "namespace Cycle;\n\nclass First : Second {\n}\n\nclass Second : First {\n}");
+        final File cycle = write("Cycle/Cycle.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+        try {
+            createLoader(false).load(cycle.getPath());
+            fail("Inheritance cycle is not reported.");
+        } catch (IllegalStateException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains("inherits itself"));
+        }
+    }
+
+    @Test
+    public void interfaceOverrideMustKeepType() throws IOException {
+        write("Override/Override/Override.lux", "namespace Override;\n\ninterface First {\n    Int32 Value get;\n}\n\n" +
+            "interface Second : First {\n    override Text Value get;\n}");
+        final File project = write("Override/Override.json", "{ \"Sources\": [ { \"Directory\": \".\" } ] }");
+        try {
+            createLoader(false).load(project.getPath());
+            fail("Override with a different type is not reported.");
+        } catch (IllegalStateException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains("inherited property with name Value twice"));
+        }
+    }
+
+    private static List<String> getNamespaces(List<NamespaceDef> namespaceDefs) {
+        final List<String> namespaces = new ArrayList<>();
+        for (NamespaceDef namespaceDef : namespaceDefs)
+            namespaces.add(namespaceDef.getNamespace());
+        return namespaces;
+    }
+}